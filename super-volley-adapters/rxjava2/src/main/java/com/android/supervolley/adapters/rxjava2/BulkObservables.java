@@ -0,0 +1,102 @@
+package com.android.supervolley.adapters.rxjava2;
+
+import com.android.supervolley.BulkPolicy;
+import com.android.supervolley.Call;
+import com.android.supervolley.HttpResponse;
+import com.android.supervolley.Response;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Fans out many {@link Call}s with bounded parallelism.
+ * <p>
+ * Each call is executed on {@code scheduler} ({@link Schedulers#io()} by default). With
+ * {@link BulkPolicy#FAIL_FAST} the first call which fails, or whose response isn't
+ * {@linkplain Response#isSuccessful() successful}, errors the stream, with an
+ * {@link HttpException} for the latter, and disposing it {@linkplain Call#cancel() cancels} the
+ * calls still in flight. With {@link BulkPolicy#COLLECT} every call runs, and a call which
+ * couldn't talk to the server is emitted as an error response with code {@code -1}, like
+ * {@link com.android.supervolley.SuperVolley#executeAll SuperVolley.executeAll} returns it.
+ * <pre><code>
+ * List&lt;Call&lt;User&gt;&gt; calls = ...;
+ * BulkObservables.inOrder(calls, 8, BulkPolicy.FAIL_FAST).subscribe(...);
+ * </code></pre>
+ */
+public final class BulkObservables {
+    private BulkObservables() {
+        // No instances.
+    }
+
+    /**
+     * Emits the responses of {@code calls} in their iteration order.
+     */
+    public static <T> Observable<Response<T>> inOrder(Iterable<? extends Call<T>> calls,
+                                                      int parallelism, BulkPolicy policy) {
+        return inOrder(calls, parallelism, policy, Schedulers.io());
+    }
+
+    /**
+     * Emits the responses of {@code calls} in their iteration order, executing them on
+     * {@code scheduler}.
+     */
+    public static <T> Observable<Response<T>> inOrder(Iterable<? extends Call<T>> calls,
+                                                      int parallelism, BulkPolicy policy,
+                                                      Scheduler scheduler) {
+        return Observable.<Call<T>>fromIterable(calls)
+                .concatMapEager(execute(policy, scheduler), parallelism, 1);
+    }
+
+    /**
+     * Emits the responses of {@code calls} as soon as each one completes.
+     */
+    public static <T> Observable<Response<T>> asCompleted(Iterable<? extends Call<T>> calls,
+                                                          int parallelism, BulkPolicy policy) {
+        return asCompleted(calls, parallelism, policy, Schedulers.io());
+    }
+
+    /**
+     * Emits the responses of {@code calls} as soon as each one completes, executing them on
+     * {@code scheduler}.
+     */
+    public static <T> Observable<Response<T>> asCompleted(Iterable<? extends Call<T>> calls,
+                                                          int parallelism, BulkPolicy policy,
+                                                          Scheduler scheduler) {
+        return Observable.<Call<T>>fromIterable(calls)
+                .flatMap(execute(policy, scheduler), parallelism);
+    }
+
+    private static <T> Function<Call<T>, ObservableSource<Response<T>>> execute(
+            final BulkPolicy policy, final Scheduler scheduler) {
+        if (policy == null) throw new NullPointerException("policy == null");
+        if (scheduler == null) throw new NullPointerException("scheduler == null");
+        return new Function<Call<T>, ObservableSource<Response<T>>>() {
+            @Override
+            public ObservableSource<Response<T>> apply(Call<T> call) {
+                Observable<Response<T>> response = new CallObservable<>(call)
+                        .subscribeOn(scheduler);
+                if (policy == BulkPolicy.FAIL_FAST) {
+                    return response.map(new Function<Response<T>, Response<T>>() {
+                        @Override
+                        public Response<T> apply(Response<T> response) throws HttpException {
+                            if (!response.isSuccessful()) {
+                                throw new HttpException(response);
+                            }
+                            return response;
+                        }
+                    });
+                }
+                return response.onErrorReturn(new Function<Throwable, Response<T>>() {
+                    @Override
+                    public Response<T> apply(Throwable t) {
+                        return Response.error(new HttpResponse.Builder()
+                                .message(t.getMessage()).success(false).code(-1).build());
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.android.supervolley.adapters.rxjava2;
+
+import com.android.supervolley.Call;
+import com.android.supervolley.CallAdapter;
+import com.android.supervolley.ElementStream;
+import com.android.supervolley.Response;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Consumer;
+
+/**
+ * Adapts a {@link com.android.supervolley.annotation.Streaming @Streaming} call whose body is an
+ * {@link ElementStream} to a {@link Flowable} or {@link io.reactivex.Observable Observable} of its
+ * elements. Elements are decoded only as they are requested downstream, and cancelling the
+ * subscription closes the response.
+ */
+final class ElementStreamCallAdapter<T> implements CallAdapter<ElementStream<T>, Object> {
+    private final Type responseType;
+    private final Scheduler scheduler;
+    private final boolean isFlowable;
+
+    ElementStreamCallAdapter(Type responseType, Scheduler scheduler, boolean isFlowable) {
+        this.responseType = responseType;
+        this.scheduler = scheduler;
+        this.isFlowable = isFlowable;
+    }
+
+    @Override
+    public Type responseType() {
+        return responseType;
+    }
+
+    @Override
+    public Object adapt(final Call<ElementStream<T>> call) {
+        Flowable<T> flowable = Flowable.generate(new Callable<ElementStream<T>>() {
+            @Override
+            public ElementStream<T> call() throws Exception {
+                // Since Call is a one-shot type, clone it for each new subscriber.
+                Response<ElementStream<T>> response = call.clone().execute();
+                if (!response.isSuccessful()) {
+                    throw new HttpException(response);
+                }
+                return response.body();
+            }
+        }, new BiConsumer<ElementStream<T>, Emitter<T>>() {
+            @Override
+            public void accept(ElementStream<T> stream, Emitter<T> emitter) throws Exception {
+                if (stream != null && stream.hasNext()) {
+                    emitter.onNext(stream.next());
+                } else {
+                    emitter.onComplete();
+                }
+            }
+        }, new Consumer<ElementStream<T>>() {
+            @Override
+            public void accept(ElementStream<T> stream) {
+                if (stream != null) {
+                    stream.close();
+                }
+            }
+        });
+
+        if (scheduler != null) {
+            flowable = flowable.subscribeOn(scheduler);
+        }
+        return isFlowable ? flowable : flowable.toObservable();
+    }
+}
@@ -1,8 +1,10 @@
 package com.android.supervolley.adapters.rxjava2;
 
 import com.android.supervolley.CallAdapter;
+import com.android.supervolley.ElementStream;
 import com.android.supervolley.Response;
 import com.android.supervolley.SuperVolley;
+import com.android.supervolley.annotation.Streaming;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -16,6 +18,8 @@ import io.reactivex.Observable;
 import io.reactivex.Scheduler;
 import io.reactivex.Single;
 
+import okhttp3.ResponseBody;
+
 
 /**
  * A {@linkplain CallAdapter.Factory call adapter} which uses RxJava 2 for creating observables.
@@ -40,6 +44,11 @@ import io.reactivex.Single;
  * <li>Result wrapped body (e.g., {@code Observable<Result<User>>}) calls {@code onNext} with a
  * {@link Result} object for all HTTP responses and errors.</li>
  * </ul>
+ * On a {@link Streaming @Streaming} method, a direct body {@code Flowable<User>} or
+ * {@code Observable<User>} decodes the response as an {@link ElementStream} and emits one
+ * {@code User} per element of the top-level JSON array as they arrive, honoring backpressure. A
+ * {@code text/event-stream} or newline-delimited JSON response emits one {@code User} per event
+ * instead, see {@link com.android.supervolley.EventStream EventStream}.
  */
 public final class RxJava2CallAdapterFactory extends CallAdapter.Factory {
     /**
@@ -109,9 +118,23 @@ public final class RxJava2CallAdapterFactory extends CallAdapter.Factory {
         } else {
             responseType = observableType;
             isBody = true;
+            if ((isFlowable || rawType == Observable.class) && rawObservableType != ResponseBody.class
+                    && isStreaming(annotations)) {
+                return new ElementStreamCallAdapter<>(
+                        newParameterizedType(ElementStream.class, responseType), scheduler, isFlowable);
+            }
         }
 
         return new RxJava2CallAdapter(responseType, scheduler, isResult, isBody, isFlowable,
                 isSingle, isMaybe, false);
     }
+
+    private static boolean isStreaming(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Streaming) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,567 @@
+package com.android.supervolley.converter.gson.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code TypeAdapter} for each class annotated with {@code GsonModel}.
+ * <p>
+ * For a class {@code com.example.User} the adapter is {@code com.example.User_GsonTypeAdapter};
+ * a nested class {@code Outer.Inner} gets {@code Outer_Inner_GsonTypeAdapter}. Its
+ * {@code read} method creates the model with its no-argument constructor and assigns each field
+ * directly, reading {@code String}, {@code int}, {@code long} and {@code boolean} fields
+ * straight from the {@code JsonReader} with the same coercions as Gson's built-in adapters and
+ * every other field through the adapter Gson provides for its type. Writing is left to Gson's
+ * reflective adapter, which is passed to the constructor, or looked up on the first write if that
+ * passes null.
+ * <p>
+ * Models which Gson's reflection would read differently are rejected at compile time: private
+ * or final fields, fields with {@code @JsonAdapter}, duplicate JSON names, and fields whose type
+ * depends on a type variable.
+ */
+@SupportedAnnotationTypes(GsonModelProcessor.GSON_MODEL)
+public final class GsonModelProcessor extends AbstractProcessor {
+    static final String GSON_MODEL = "com.android.supervolley.converter.gson.GsonModel";
+    private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+    private static final String JSON_ADAPTER = "com.google.gson.annotations.JsonAdapter";
+    private static final String GENERATED_ADAPTERS =
+            "com.android.supervolley.converter.gson.GeneratedAdapters";
+    private static final String SUFFIX = "_GsonTypeAdapter";
+
+    private static final String TYPE_ADAPTER = "com.google.gson.TypeAdapter";
+    private static final String TYPE_TOKEN = "com.google.gson.reflect.TypeToken";
+    private static final String JSON_TOKEN = "com.google.gson.stream.JsonToken";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                try {
+                    generate(element);
+                } catch (InvalidModelException e) {
+                    processingEnv.getMessager()
+                            .printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Unable to write the adapter: " + e.getMessage(), element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(Element element) throws InvalidModelException, IOException {
+        if (element.getKind() != ElementKind.CLASS) {
+            throw new InvalidModelException(element, "@GsonModel can only be applied to classes");
+        }
+        TypeElement model = (TypeElement) element;
+        checkModel(model);
+        List<ModelField> fields = collectFields(model);
+
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(model).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(model).toString();
+        String adapterName = (packageName.isEmpty()
+                ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_')
+                + SUFFIX;
+
+        Writer writer = processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? adapterName
+                        : packageName + "." + adapterName, model)
+                .openWriter();
+        try {
+            writer.write(new AdapterWriter(model, adapterName, packageName, fields).write());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void checkModel(TypeElement model) throws InvalidModelException {
+        Set<Modifier> modifiers = model.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            throw new InvalidModelException(model, "@GsonModel classes must not be abstract");
+        }
+        if (!model.getTypeParameters().isEmpty()) {
+            throw new InvalidModelException(model, "@GsonModel classes must not be generic");
+        }
+        if (model.getNestingKind() == NestingKind.LOCAL
+                || model.getNestingKind() == NestingKind.ANONYMOUS) {
+            throw new InvalidModelException(model, "@GsonModel classes must not be local");
+        }
+        if (model.getNestingKind() == NestingKind.MEMBER
+                && !modifiers.contains(Modifier.STATIC)) {
+            throw new InvalidModelException(model, "Nested @GsonModel classes must be static");
+        }
+        for (Element e = model; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new InvalidModelException(model,
+                        "@GsonModel classes and their enclosing classes must not be private");
+            }
+        }
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return;
+            }
+        }
+        throw new InvalidModelException(model,
+                "@GsonModel classes need a non-private no-argument constructor");
+    }
+
+    /**
+     * Returns the fields Gson would bind for {@code model}, from the class itself up to
+     * {@code Object}, with their types resolved against {@code model}.
+     */
+    private List<ModelField> collectFields(TypeElement model) throws InvalidModelException {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        DeclaredType modelType = (DeclaredType) model.asType();
+        Element modelPackage = elements.getPackageOf(model);
+
+        List<ModelField> fields = new ArrayList<>();
+        Map<String, VariableElement> byName = new LinkedHashMap<>();
+        Set<String> simpleNames = new HashSet<>();
+        for (TypeElement type = model; type != null; type = superclassOf(type)) {
+            boolean samePackage = elements.getPackageOf(type).equals(modelPackage);
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                if (modifiers.contains(Modifier.FINAL)) {
+                    throw new InvalidModelException(field, "@GsonModel fields must not be final");
+                }
+                if (modifiers.contains(Modifier.PRIVATE)
+                        || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+                    throw new InvalidModelException(field, "@GsonModel fields must be visible in "
+                            + "package " + modelPackage + "; make them package-private or public");
+                }
+                if (annotation(field, JSON_ADAPTER) != null) {
+                    throw new InvalidModelException(field,
+                            "@JsonAdapter fields are not supported in @GsonModel classes");
+                }
+                TypeMirror fieldType = types.asMemberOf(modelType, field);
+                if (!isResolved(fieldType)) {
+                    throw new InvalidModelException(field,
+                            "@GsonModel field types must not depend on a type variable");
+                }
+                List<String> names = jsonNames(field);
+                for (String name : names) {
+                    VariableElement previous = byName.put(name, field);
+                    if (previous != null) {
+                        throw new InvalidModelException(field, model.getQualifiedName()
+                                + " declares multiple JSON fields named " + name);
+                    }
+                }
+                // A field hidden by one in a subclass is only reachable through a cast.
+                String declaringClass = simpleNames.add(field.getSimpleName().toString())
+                        ? null : type.getQualifiedName().toString();
+                fields.add(new ModelField(field.getSimpleName().toString(), declaringClass,
+                        names, fieldType));
+            }
+        }
+        return fields;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private static List<String> jsonNames(VariableElement field) {
+        List<String> names = new ArrayList<>();
+        AnnotationMirror serializedName = annotation(field, SERIALIZED_NAME);
+        if (serializedName == null) {
+            names.add(field.getSimpleName().toString());
+            return names;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : serializedName.getElementValues().entrySet()) {
+            String key = entry.getKey().getSimpleName().toString();
+            if (key.equals("value")) {
+                names.add(0, (String) entry.getValue().getValue());
+            } else if (key.equals("alternate")) {
+                @SuppressWarnings("unchecked")
+                List<? extends AnnotationValue> alternates =
+                        (List<? extends AnnotationValue>) entry.getValue().getValue();
+                for (AnnotationValue alternate : alternates) {
+                    names.add((String) alternate.getValue());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isResolved(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+                return false;
+            case ARRAY:
+                return isResolved(((ArrayType) type).getComponentType());
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                return (wildcard.getExtendsBound() == null || isResolved(wildcard.getExtendsBound()))
+                        && (wildcard.getSuperBound() == null || isResolved(wildcard.getSuperBound()));
+            case DECLARED:
+                for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                    if (!isResolved(argument)) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * The source form of {@code type}, without any type annotations.
+     */
+    private static String typeName(TypeMirror type) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return typeName(((ArrayType) type).getComponentType()) + "[]";
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                if (wildcard.getExtendsBound() != null) {
+                    return "? extends " + typeName(wildcard.getExtendsBound());
+                }
+                if (wildcard.getSuperBound() != null) {
+                    return "? super " + typeName(wildcard.getSuperBound());
+                }
+                return "?";
+            case DECLARED:
+                DeclaredType declared = (DeclaredType) type;
+                StringBuilder name = new StringBuilder(
+                        ((TypeElement) declared.asElement()).getQualifiedName());
+                List<? extends TypeMirror> arguments = declared.getTypeArguments();
+                if (!arguments.isEmpty()) {
+                    name.append('<');
+                    for (int i = 0; i < arguments.size(); i++) {
+                        if (i > 0) {
+                            name.append(", ");
+                        }
+                        name.append(typeName(arguments.get(i)));
+                    }
+                    name.append('>');
+                }
+                return name.toString();
+            default:
+                if (type.getKind().isPrimitive()) {
+                    return type.getKind().name().toLowerCase(Locale.US);
+                }
+                return type.toString();
+        }
+    }
+
+    private static final class ModelField {
+        final String name;
+        final String declaringClass;
+        final List<String> jsonNames;
+        final TypeMirror type;
+
+        ModelField(String name, String declaringClass, List<String> jsonNames, TypeMirror type) {
+            this.name = name;
+            this.declaringClass = declaringClass;
+            this.jsonNames = jsonNames;
+            this.type = type;
+        }
+    }
+
+    private static final class InvalidModelException extends Exception {
+        final Element element;
+
+        InvalidModelException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    /**
+     * Writes the source of one adapter.
+     */
+    private final class AdapterWriter {
+        private final String modelName;
+        private final String adapterName;
+        private final String packageName;
+        private final List<ModelField> fields;
+        private final Map<String, String> adapters = new LinkedHashMap<>();
+        private final Map<String, String> adapterTokens = new LinkedHashMap<>();
+        private final StringBuilder out = new StringBuilder();
+
+        AdapterWriter(TypeElement model, String adapterName, String packageName,
+                      List<ModelField> fields) {
+            this.modelName = model.getQualifiedName().toString();
+            this.adapterName = adapterName;
+            this.packageName = packageName;
+            this.fields = fields;
+        }
+
+        String write() {
+            StringBuilder cases = new StringBuilder();
+            boolean needsToken = false;
+            for (ModelField field : fields) {
+                for (String jsonName : field.jsonNames) {
+                    cases.append("                    case ").append(stringLiteral(jsonName))
+                            .append(":\n");
+                }
+                needsToken |= readField(cases, field);
+                cases.append("                        break;\n");
+            }
+
+            if (!packageName.isEmpty()) {
+                out.append("package ").append(packageName).append(";\n\n");
+            }
+            out.append("// Generated by the SuperVolley gson-compiler from ").append(modelName)
+                    .append(". Do not edit.\n");
+            out.append("public final class ").append(adapterName).append(" extends ")
+                    .append(TYPE_ADAPTER).append('<').append(modelName).append("> {\n");
+            out.append("    private final com.google.gson.Gson gson;\n");
+            out.append("    private ").append(TYPE_ADAPTER).append('<').append(modelName)
+                    .append("> writer;\n");
+            for (Map.Entry<String, String> adapter : adapters.entrySet()) {
+                out.append("    private ").append(TYPE_ADAPTER).append('<')
+                        .append(adapter.getKey()).append("> ").append(adapter.getValue())
+                        .append(";\n");
+            }
+            out.append('\n');
+            out.append("    public ").append(adapterName)
+                    .append("(com.google.gson.Gson gson, ").append(TYPE_ADAPTER).append('<')
+                    .append(modelName).append("> writer) {\n");
+            out.append("        this.gson = gson;\n");
+            out.append("        this.writer = writer;\n");
+            out.append("    }\n\n");
+
+            out.append("    @Override\n");
+            out.append("    public void write(com.google.gson.stream.JsonWriter out, ")
+                    .append(modelName).append(" value) throws java.io.IOException {\n");
+            out.append("        ").append(TYPE_ADAPTER).append('<').append(modelName)
+                    .append("> writer = this.writer;\n");
+            out.append("        if (writer == null) {\n");
+            out.append("            writer = gson.getDelegateAdapter(").append(GENERATED_ADAPTERS)
+                    .append(".FACTORY, ").append(TYPE_TOKEN).append(".get(").append(modelName)
+                    .append(".class));\n");
+            out.append("            this.writer = writer;\n");
+            out.append("        }\n");
+            out.append("        writer.write(out, value);\n");
+            out.append("    }\n\n");
+
+            out.append("    @Override\n");
+            out.append("    public ").append(modelName)
+                    .append(" read(com.google.gson.stream.JsonReader in) "
+                            + "throws java.io.IOException {\n");
+            out.append("        if (in.peek() == ").append(JSON_TOKEN).append(".NULL) {\n");
+            out.append("            in.nextNull();\n");
+            out.append("            return null;\n");
+            out.append("        }\n");
+            out.append("        ").append(modelName).append(" value = new ").append(modelName)
+                    .append("();\n");
+            if (needsToken) {
+                out.append("        ").append(JSON_TOKEN).append(" token;\n");
+            }
+            out.append("        try {\n");
+            out.append("            in.beginObject();\n");
+            out.append("            while (in.hasNext()) {\n");
+            out.append("                switch (in.nextName()) {\n");
+            out.append(cases);
+            out.append("                    default:\n");
+            out.append("                        in.skipValue();\n");
+            out.append("                }\n");
+            out.append("            }\n");
+            out.append("            in.endObject();\n");
+            out.append("        } catch (IllegalStateException | NumberFormatException e) {\n");
+            out.append("            throw new com.google.gson.JsonSyntaxException(e);\n");
+            out.append("        }\n");
+            out.append("        return value;\n");
+            out.append("    }\n");
+
+            for (Map.Entry<String, String> adapter : adapters.entrySet()) {
+                String type = adapter.getKey();
+                String name = adapter.getValue();
+                out.append('\n');
+                out.append("    private ").append(TYPE_ADAPTER).append('<').append(type)
+                        .append("> ").append(name).append("() {\n");
+                out.append("        ").append(TYPE_ADAPTER).append('<').append(type)
+                        .append("> adapter = ").append(name).append(";\n");
+                out.append("        if (adapter == null) {\n");
+                out.append("            adapter = ").append(GENERATED_ADAPTERS)
+                        .append(".get(gson, ").append(adapterTokens.get(type)).append(");\n");
+                out.append("            ").append(name).append(" = adapter;\n");
+                out.append("        }\n");
+                out.append("        return adapter;\n");
+                out.append("    }\n");
+            }
+            out.append("}\n");
+            return out.toString();
+        }
+
+        /**
+         * Appends the statements reading {@code field}, and returns true if they use the
+         * {@code token} local.
+         */
+        private boolean readField(StringBuilder cases, ModelField field) {
+            String indent = "                        ";
+            String target = field.declaringClass == null ? "value." + field.name
+                    : "((" + field.declaringClass + ") value)." + field.name;
+            String type = typeName(field.type);
+            boolean primitive = field.type.getKind().isPrimitive();
+            switch (type) {
+                case "int":
+                case "java.lang.Integer":
+                case "long":
+                case "java.lang.Long":
+                    String next = type.equals("int") || type.equals("java.lang.Integer")
+                            ? "nextInt" : "nextLong";
+                    cases.append(indent).append("if (in.peek() == ").append(JSON_TOKEN)
+                            .append(".NULL) {\n");
+                    cases.append(indent).append("    in.nextNull();\n");
+                    if (!primitive) {
+                        cases.append(indent).append("    ").append(target).append(" = null;\n");
+                    }
+                    cases.append(indent).append("} else {\n");
+                    cases.append(indent).append("    ").append(target).append(" = in.")
+                            .append(next).append("();\n");
+                    cases.append(indent).append("}\n");
+                    return false;
+                case "boolean":
+                case "java.lang.Boolean":
+                    cases.append(indent).append("token = in.peek();\n");
+                    cases.append(indent).append("if (token == ").append(JSON_TOKEN)
+                            .append(".NULL) {\n");
+                    cases.append(indent).append("    in.nextNull();\n");
+                    if (!primitive) {
+                        cases.append(indent).append("    ").append(target).append(" = null;\n");
+                    }
+                    cases.append(indent).append("} else if (token == ").append(JSON_TOKEN)
+                            .append(".STRING) {\n");
+                    cases.append(indent).append("    ").append(target)
+                            .append(" = java.lang.Boolean.parseBoolean(in.nextString());\n");
+                    cases.append(indent).append("} else {\n");
+                    cases.append(indent).append("    ").append(target)
+                            .append(" = in.nextBoolean();\n");
+                    cases.append(indent).append("}\n");
+                    return true;
+                case "java.lang.String":
+                    cases.append(indent).append("token = in.peek();\n");
+                    cases.append(indent).append("if (token == ").append(JSON_TOKEN)
+                            .append(".NULL) {\n");
+                    cases.append(indent).append("    in.nextNull();\n");
+                    cases.append(indent).append("    ").append(target).append(" = null;\n");
+                    cases.append(indent).append("} else if (token == ").append(JSON_TOKEN)
+                            .append(".BOOLEAN) {\n");
+                    cases.append(indent).append("    ").append(target)
+                            .append(" = java.lang.Boolean.toString(in.nextBoolean());\n");
+                    cases.append(indent).append("} else {\n");
+                    cases.append(indent).append("    ").append(target)
+                            .append(" = in.nextString();\n");
+                    cases.append(indent).append("}\n");
+                    return true;
+                default:
+                    break;
+            }
+
+            if (primitive) {
+                // Like Gson's reflective adapter, a null leaves the primitive at its default.
+                String boxed = processingEnv.getTypeUtils()
+                        .boxedClass((PrimitiveType) field.type).getQualifiedName().toString();
+                String adapter = adapterFor(boxed, TYPE_TOKEN + ".get(" + type + ".class)");
+                cases.append(indent).append("{\n");
+                cases.append(indent).append("    ").append(boxed).append(" read = ")
+                        .append(adapter).append("().read(in);\n");
+                cases.append(indent).append("    if (read != null) {\n");
+                cases.append(indent).append("        ").append(target).append(" = read;\n");
+                cases.append(indent).append("    }\n");
+                cases.append(indent).append("}\n");
+                return false;
+            }
+            String token = field.type.getKind() == TypeKind.DECLARED
+                    && ((DeclaredType) field.type).getTypeArguments().isEmpty()
+                    ? TYPE_TOKEN + ".get(" + type + ".class)"
+                    : "new " + TYPE_TOKEN + "<" + type + ">() {}";
+            String adapter = adapterFor(type, token);
+            cases.append(indent).append(target).append(" = ").append(adapter)
+                    .append("().read(in);\n");
+            return false;
+        }
+
+        /**
+         * Returns the name of the lazily resolved adapter field for {@code type}, which is only
+         * looked up on first use so that models can refer to themselves.
+         */
+        private String adapterFor(String type, String token) {
+            String name = adapters.get(type);
+            if (name == null) {
+                name = "adapter" + adapters.size();
+                adapters.put(type, name);
+                adapterTokens.put(type, token);
+            }
+            return name;
+        }
+    }
+
+    private static String stringLiteral(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
@@ -0,0 +1,267 @@
+package com.android.supervolley.converter.gson.compiler;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles sample models with the processor, against the {@code GsonModel} and
+ * {@code GeneratedAdapters} sources of the gson converter, and reads JSON with the generated
+ * adapters.
+ */
+public final class GsonModelProcessorTest {
+    private static final File CONVERTER_SOURCES = new File(
+            "../gson/src/main/java/com/android/supervolley/converter/gson");
+
+    private static final String BASE = ""
+            + "package com.example.base;\n"
+            + "public class Base<T> {\n"
+            + "    public T payload;\n"
+            + "    public double score;\n"
+            + "}\n";
+
+    private static final String USER = ""
+            + "package com.example;\n"
+            + "import com.android.supervolley.converter.gson.GsonModel;\n"
+            + "import com.google.gson.annotations.SerializedName;\n"
+            + "import java.util.List;\n"
+            + "@GsonModel\n"
+            + "public class User extends com.example.base.Base<String> {\n"
+            + "    int id;\n"
+            + "    Long big;\n"
+            + "    boolean admin;\n"
+            + "    Boolean flag;\n"
+            + "    @SerializedName(value = \"full_name\", alternate = {\"nm\", \"n\\\"x\"})\n"
+            + "    String name;\n"
+            + "    List<User> friends;\n"
+            + "    Address address;\n"
+            + "    float[] ratios;\n"
+            + "    transient int skipped;\n"
+            + "    static int ignored;\n"
+            + "    @GsonModel\n"
+            + "    public static class Address {\n"
+            + "        String city;\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String JSON = "{\"id\": \"7\", \"big\": 9007199254740993,"
+            + " \"admin\": \"true\", \"flag\": null, \"nm\": \"Ada\", \"payload\": \"p\","
+            + " \"score\": 1.5,"
+            + " \"friends\": [{\"id\": 8, \"full_name\": true, \"address\": null}],"
+            + " \"address\": {\"city\": \"London\", \"zip\": [1, {}]}, \"ratios\": [0.5, 2],"
+            + " \"skipped\": 3, \"ignored\": 4, \"unknown\": {\"nested\": [null]}}";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generatesAdapters() throws Exception {
+        Compilation compilation = compile(USER, BASE);
+        assertEquals(compilation.errors.toString(), Collections.<String>emptyList(),
+                compilation.errors);
+        assertTrue(new File(compilation.classes, "com/example/User_GsonTypeAdapter.class")
+                .exists());
+        assertTrue(new File(compilation.classes,
+                "com/example/User_Address_GsonTypeAdapter.class").exists());
+    }
+
+    @Test
+    public void readsLikeReflection() throws Exception {
+        Compilation compilation = compile(USER, BASE);
+        ClassLoader loader = compilation.classLoader();
+        Class<?> user = loader.loadClass("com.example.User");
+        Class<?> generatedAdapters =
+                loader.loadClass("com.android.supervolley.converter.gson.GeneratedAdapters");
+
+        Gson gson = new Gson();
+        TypeAdapter<?> adapter = (TypeAdapter<?>) generatedAdapters
+                .getMethod("get", Gson.class, TypeToken.class)
+                .invoke(null, gson, TypeToken.get(user));
+        assertEquals("com.example.User_GsonTypeAdapter", adapter.getClass().getName());
+
+        Object generated = adapter.fromJson(JSON);
+        Object reflected = gson.fromJson(JSON, user);
+        assertEquals(gson.toJson(reflected), gson.toJson(generated));
+    }
+
+    @Test
+    public void factoryBuildsWriterOnFirstWrite() throws Exception {
+        Compilation compilation = compile(USER, BASE);
+        ClassLoader loader = compilation.classLoader();
+        Class<?> user = loader.loadClass("com.example.User");
+        TypeAdapterFactory factory = (TypeAdapterFactory) loader
+                .loadClass("com.android.supervolley.converter.gson.GeneratedAdapters")
+                .getField("FACTORY").get(null);
+
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+        TypeAdapter<?> adapter = gson.getAdapter(user);
+        assertEquals("com.example.User_GsonTypeAdapter", adapter.getClass().getName());
+
+        Field writer = adapter.getClass().getDeclaredField("writer");
+        writer.setAccessible(true);
+        Object generated = gson.fromJson(JSON, user);
+        assertNull(writer.get(adapter));
+        assertEquals(new Gson().toJson(new Gson().fromJson(JSON, user)), gson.toJson(generated));
+        assertNotNull(writer.get(adapter));
+    }
+
+    @Test
+    public void rejectsPrivateFields() throws Exception {
+        assertError("private fields", "@GsonModel fields must be visible in package com.example",
+                model("private String name;"));
+    }
+
+    @Test
+    public void rejectsFinalFields() throws Exception {
+        assertError("final fields", "@GsonModel fields must not be final",
+                model("final String name = null;"));
+    }
+
+    @Test
+    public void rejectsDuplicateNames() throws Exception {
+        assertError("duplicate names", "declares multiple JSON fields named name",
+                model("@com.google.gson.annotations.SerializedName(\"name\") String a;"
+                        + " String name;"));
+    }
+
+    @Test
+    public void rejectsInnerClasses() throws Exception {
+        assertError("inner classes", "Nested @GsonModel classes must be static", ""
+                + "package com.example;\n"
+                + "public class Outer {\n"
+                + "    @com.android.supervolley.converter.gson.GsonModel\n"
+                + "    public class Inner {\n"
+                + "    }\n"
+                + "}\n");
+    }
+
+    @Test
+    public void rejectsGenericClasses() throws Exception {
+        assertError("generic classes", "@GsonModel classes must not be generic", ""
+                + "package com.example;\n"
+                + "@com.android.supervolley.converter.gson.GsonModel\n"
+                + "public class Model<T> {\n"
+                + "    T value;\n"
+                + "}\n");
+    }
+
+    @Test
+    public void rejectsMissingConstructor() throws Exception {
+        assertError("constructors",
+                "@GsonModel classes need a non-private no-argument constructor",
+                model("String name; Model(String name) { this.name = name; }"));
+    }
+
+    private static String model(String body) {
+        return "package com.example;\n"
+                + "@com.android.supervolley.converter.gson.GsonModel\n"
+                + "public class Model {\n"
+                + "    " + body + "\n"
+                + "}\n";
+    }
+
+    private void assertError(String what, String expected, String source) throws IOException {
+        Compilation compilation = compile(source);
+        assertFalse("Expected an error for " + what, compilation.errors.isEmpty());
+        for (String error : compilation.errors) {
+            if (error.contains(expected)) {
+                return;
+            }
+        }
+        throw new AssertionError("Expected \"" + expected + "\" in " + compilation.errors);
+    }
+
+    private Compilation compile(String... sources) throws IOException {
+        File sourceDir = temporaryFolder.newFolder();
+        File classes = temporaryFolder.newFolder();
+        List<File> files = new ArrayList<>();
+        for (String source : sources) {
+            String packageName = source.substring("package ".length(), source.indexOf(';'));
+            int classStart = source.indexOf("public class ") + "public class ".length();
+            String className = source.substring(classStart,
+                    source.indexOf(' ', classStart)).replaceAll("<.*", "");
+            File file = new File(sourceDir,
+                    packageName.replace('.', '/') + "/" + className + ".java");
+            assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+            files.add(file);
+        }
+        files.add(new File(CONVERTER_SOURCES, "GsonModel.java"));
+        files.add(new File(CONVERTER_SOURCES, "GeneratedAdapters.java"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-d", classes.getPath(), "-s", classes.getPath(),
+                            "-classpath", System.getProperty("java.class.path")),
+                    null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new GsonModelProcessor()));
+            task.call();
+        } finally {
+            fileManager.close();
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return new Compilation(classes, errors);
+    }
+
+    private static final class Compilation {
+        final File classes;
+        final List<String> errors;
+
+        Compilation(File classes, List<String> errors) {
+            this.classes = classes;
+            this.errors = errors;
+        }
+
+        ClassLoader classLoader() throws IOException {
+            return new URLClassLoader(new URL[]{classes.toURI().toURL()},
+                    GsonModelProcessorTest.class.getClassLoader());
+        }
+    }
+}
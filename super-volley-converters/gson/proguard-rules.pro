@@ -15,3 +15,9 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 #}
+
+# Generated adapters are looked up by the name of their @GsonModel class.
+-keepnames @com.android.supervolley.converter.gson.GsonModel class *
+-keep class **_GsonTypeAdapter {
+    public <init>(com.google.gson.Gson, com.google.gson.TypeAdapter);
+}
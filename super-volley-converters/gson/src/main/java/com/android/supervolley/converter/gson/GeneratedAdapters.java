@@ -0,0 +1,120 @@
+package com.android.supervolley.converter.gson;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.internal.Excluder;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up the adapters generated for {@link GsonModel} classes. Used by
+ * {@link GsonConverterFactory} and by the generated adapters themselves, for the types of their
+ * fields.
+ */
+public final class GeneratedAdapters {
+    static final String SUFFIX = "_GsonTypeAdapter";
+
+    private static final Object MISSING = new Object();
+    private static final Map<Class<?>, Object> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private GeneratedAdapters() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Uses the generated adapters for every {@link GsonModel} type {@code gson} reads, including
+     * the elements of collections and arrays:
+     * <pre><code>
+     * Gson gson = new GsonBuilder()
+     *     .registerTypeAdapterFactory(GeneratedAdapters.FACTORY)
+     *     .create();
+     * </code></pre>
+     * Gson's reflective adapter for a model, which writes it, is then only built on its first
+     * write. A type adapter for a model registered before this factory is overridden by it;
+     * register such adapters after it.
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> rawType = type.getRawType();
+            Constructor<?> constructor = constructorFor(rawType);
+            // Gson's built-in adapters for collections and maps come before its reflective one.
+            if (constructor == null || !readsLikeReflection(gson, rawType)
+                    || Collection.class.isAssignableFrom(rawType)
+                    || Map.class.isAssignableFrom(rawType)) {
+                return null;
+            }
+            return generated(type, gson, null, constructor);
+        }
+    };
+
+    /**
+     * Returns the adapter {@code gson} uses for {@code type}, or the generated adapter for it if
+     * Gson would read it by reflection and the result would be the same.
+     * <p>
+     * Unless {@code gson} has {@link #FACTORY}, this asks Gson for its adapter first, to honour
+     * any adapter registered for the type, so Gson's reflective adapter is still built.
+     */
+    public static <T> TypeAdapter<T> get(Gson gson, TypeToken<T> type) {
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        Constructor<?> constructor = constructorFor(type.getRawType());
+        if (constructor == null || !(adapter instanceof ReflectiveTypeAdapterFactory.Adapter)
+                || !readsLikeReflection(gson, type.getRawType())) {
+            return adapter;
+        }
+        return generated(type, gson, adapter, constructor);
+    }
+
+    /**
+     * Returns false if the settings of {@code gson} or an annotation of {@code rawType} change
+     * how Gson reads it, since generated adapters bake in the default names and exclusions.
+     */
+    private static boolean readsLikeReflection(Gson gson, Class<?> rawType) {
+        return gson.excluder() == Excluder.DEFAULT
+                && gson.fieldNamingStrategy() == FieldNamingPolicy.IDENTITY
+                && !rawType.isAnnotationPresent(JsonAdapter.class);
+    }
+
+    /**
+     * Creates the generated adapter for {@code type}, which writes with {@code writer}, or, if
+     * that is null, with the adapter {@code gson} has after {@link #FACTORY}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> TypeAdapter<T> generated(TypeToken<T> type, Gson gson,
+                                                TypeAdapter<T> writer, Constructor<?> constructor) {
+        try {
+            return (TypeAdapter<T>) constructor.newInstance(gson, writer);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException("Unable to create adapter for " + type, e.getCause());
+        }
+    }
+
+    private static Constructor<?> constructorFor(Class<?> rawType) {
+        Object constructor = CONSTRUCTORS.get(rawType);
+        if (constructor == null) {
+            constructor = MISSING;
+            if (rawType.isAnnotationPresent(GsonModel.class)) {
+                String name = rawType.getName().replace('$', '_') + SUFFIX;
+                try {
+                    constructor = Class.forName(name, true, rawType.getClassLoader())
+                            .getConstructor(Gson.class, TypeAdapter.class);
+                } catch (ClassNotFoundException | NoSuchMethodException e) {
+                    // The annotation processor did not run; keep reading it by reflection.
+                }
+            }
+            CONSTRUCTORS.put(rawType, constructor);
+        }
+        return constructor != MISSING ? (Constructor<?>) constructor : null;
+    }
+}
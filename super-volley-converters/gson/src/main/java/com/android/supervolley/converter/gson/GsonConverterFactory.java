@@ -1,11 +1,13 @@
 package com.android.supervolley.converter.gson;
 
 import com.android.supervolley.Converter;
+import com.android.supervolley.ElementStream;
 import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
 import okhttp3.RequestBody;
@@ -20,6 +22,15 @@ import static com.android.supervolley.SuperVolley.Builder;
  * all types. If you are mixing JSON serialization with something else (such as protocol buffers),
  * you must {@linkplain Builder#addConverterFactory(Converter.Factory) add this instance}
  * last to allow the other converters a chance to see their types.
+ * <p>
+ * UTF-8 responses are tokenized directly from their bytes, without decoding the body to
+ * characters first, unless the {@link Gson} instance is lenient or the response type contains a
+ * {@link java.util.Map}; those are read through {@link okhttp3.ResponseBody#charStream()}.
+ * <p>
+ * Response types annotated with {@link GsonModel} are read by their generated adapter instead of
+ * by reflection; register {@link GeneratedAdapters#FACTORY} with the {@link Gson} instance to
+ * also use them for models nested in collections and arrays, and to only build Gson's reflective
+ * adapter of a model when it is written.
  */
 public final class GsonConverterFactory extends Converter.Factory {
     /**
@@ -47,8 +58,14 @@ public final class GsonConverterFactory extends Converter.Factory {
 
     @Override
     public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations) {
-        TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
-        return new GsonResponseBodyConverter<>(gson, adapter);
+        if (getRawType(type) == ElementStream.class && type instanceof ParameterizedType) {
+            Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+            TypeAdapter<?> adapter = GeneratedAdapters.get(gson, TypeToken.get(elementType));
+            return new GsonElementStreamConverter<>(gson, adapter,
+                    NameTable.forType(gson, elementType));
+        }
+        TypeAdapter<?> adapter = GeneratedAdapters.get(gson, TypeToken.get(type));
+        return new GsonResponseBodyConverter<>(gson, adapter, NameTable.forType(gson, type));
     }
 
     @Override
@@ -0,0 +1,77 @@
+package com.android.supervolley.converter.gson;
+
+import com.android.supervolley.Converter;
+import com.android.supervolley.ElementStream;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Decodes a top-level JSON array lazily, one element per {@link ElementStream#next()}.
+ */
+final class GsonElementStreamConverter<T> implements Converter<ResponseBody, ElementStream<T>> {
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+    private final NameTable names;
+
+    GsonElementStreamConverter(Gson gson, TypeAdapter<T> adapter, NameTable names) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.names = names;
+    }
+
+    @Override
+    public ElementStream<T> convert(ResponseBody value) throws IOException {
+        JsonReader jsonReader;
+        try {
+            jsonReader = names != null ? Utf8JsonReader.forBody(value, names) : null;
+            if (jsonReader == null) {
+                jsonReader = gson.newJsonReader(value.charStream());
+            }
+            jsonReader.beginArray();
+        } catch (IOException | RuntimeException e) {
+            value.close();
+            throw e;
+        }
+        return new JsonArrayStream<>(value, jsonReader, adapter);
+    }
+
+    private static final class JsonArrayStream<T> implements ElementStream<T> {
+        private final ResponseBody body;
+        private final JsonReader jsonReader;
+        private final TypeAdapter<T> adapter;
+        private boolean done;
+
+        JsonArrayStream(ResponseBody body, JsonReader jsonReader, TypeAdapter<T> adapter) {
+            this.body = body;
+            this.jsonReader = jsonReader;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            if (done) return false;
+            if (jsonReader.hasNext()) return true;
+            jsonReader.endArray();
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() throws IOException {
+            if (!hasNext()) throw new NoSuchElementException();
+            return adapter.read(jsonReader);
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            body.close();
+        }
+    }
+}
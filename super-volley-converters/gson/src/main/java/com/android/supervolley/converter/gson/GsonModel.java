@@ -0,0 +1,29 @@
+package com.android.supervolley.converter.gson;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generate a {@link com.google.gson.TypeAdapter TypeAdapter} which reads this class with plain
+ * field assignments instead of reflection. Requires the {@code gson-compiler} annotation
+ * processor:
+ * <pre><code>
+ * annotationProcessor 'com.android.supervolley:gson-compiler:1.0.0'
+ * </code></pre>
+ * The class must be a non-generic, non-abstract top level or static nested class with a
+ * non-private no-argument constructor, and its fields, including inherited ones, must not be
+ * {@code private} or {@code final}. {@link GsonConverterFactory} reads response types, and the
+ * fields of generated models, with their generated adapters as long as the {@code Gson} instance
+ * keeps the default field naming and exclusion settings; see {@link GeneratedAdapters#FACTORY}
+ * for models nested in collections. Writing still goes through Gson's reflective adapter, which
+ * {@link GeneratedAdapters#FACTORY} only builds when a model is first written.
+ */
+@Documented
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface GsonModel {
+}
@@ -12,15 +12,20 @@ import okhttp3.ResponseBody;
 final class GsonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
     private final Gson gson;
     private final TypeAdapter<T> adapter;
+    private final NameTable names;
 
-    GsonResponseBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+    GsonResponseBodyConverter(Gson gson, TypeAdapter<T> adapter, NameTable names) {
         this.gson = gson;
         this.adapter = adapter;
+        this.names = names;
     }
 
     @Override
     public T convert(ResponseBody value) throws IOException {
-        JsonReader jsonReader = gson.newJsonReader(value.charStream());
+        JsonReader jsonReader = names != null ? Utf8JsonReader.forBody(value, names) : null;
+        if (jsonReader == null) {
+            jsonReader = gson.newJsonReader(value.charStream());
+        }
         try {
             return adapter.read(jsonReader);
         } finally {
@@ -0,0 +1,229 @@
+package com.android.supervolley.converter.gson;
+
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import okio.Buffer;
+
+/**
+ * The JSON names of the fields of a model type, encoded as UTF-8 once so that
+ * {@link Utf8JsonReader} can match names in a response without decoding them.
+ * <p>
+ * Immutable, and shared by every call of a converter.
+ */
+final class NameTable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_NAMES = 4096;
+
+    private final byte[][] keys;
+    private final String[] values;
+    private final int mask;
+    private final int maxLength;
+
+    private NameTable(Collection<String> names) {
+        int capacity = Integer.highestOneBit(Math.max(names.size(), 1) * 4 - 1) << 1;
+        this.keys = new byte[capacity][];
+        this.values = new String[capacity];
+        this.mask = capacity - 1;
+        int maxLength = 0;
+        for (String name : names) {
+            byte[] key = name.getBytes(UTF_8);
+            int slot = hash(key) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = name.intern();
+            maxLength = Math.max(maxLength, key.length);
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the known name equal to the first {@code byteCount} bytes of {@code buffer}, or null.
+     */
+    String get(Buffer buffer, long byteCount) {
+        if (byteCount > maxLength) {
+            return null;
+        }
+        int length = (int) byteCount;
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer.getByte(i);
+        }
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            byte[] key = keys[slot];
+            if (key.length == length && matches(key, buffer)) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] key, Buffer buffer) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.getByte(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 0;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the names of the fields {@code gson} reads for {@code type}, or null if responses of
+     * that type must be read by Gson's own {@code JsonReader}: when {@code gson} is lenient, or
+     * when a {@link Map} is reachable from {@code type}, because Gson's map adapter only works
+     * with its own reader.
+     */
+    static NameTable forType(Gson gson, Type type) {
+        if (gson.newJsonReader(new StringReader("")).isLenient()) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        if (!collect(gson.fieldNamingStrategy(), type,
+                Collections.<TypeVariable<?>, Type>emptyMap(), new HashSet<String>(), names)) {
+            return null;
+        }
+        return new NameTable(names);
+    }
+
+    /**
+     * Adds the field names of {@code type} and the types it references to {@code names}, and
+     * returns false if one of them is a {@link Map}.
+     */
+    private static boolean collect(FieldNamingStrategy naming, Type type,
+                                   Map<TypeVariable<?>, Type> bindings, Set<String> visited,
+                                   Set<String> names) {
+        if (type instanceof TypeVariable) {
+            Type bound = bindings.get(type);
+            // An unbound variable is read as an Object, which only needs the public reader API.
+            return bound == null || collect(naming, bound, bindings, visited, names);
+        }
+        if (type instanceof WildcardType) {
+            return collect(naming, ((WildcardType) type).getUpperBounds()[0], bindings, visited,
+                    names);
+        }
+        if (type instanceof GenericArrayType) {
+            return collect(naming, ((GenericArrayType) type).getGenericComponentType(), bindings,
+                    visited, names);
+        }
+
+        Class<?> rawType;
+        Type[] arguments;
+        if (type instanceof ParameterizedType) {
+            rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+            arguments = ((ParameterizedType) type).getActualTypeArguments();
+        } else if (type instanceof Class) {
+            rawType = (Class<?>) type;
+            arguments = new Type[0];
+        } else {
+            return false;
+        }
+
+        if (Map.class.isAssignableFrom(rawType)) {
+            return false;
+        }
+        if (rawType.isArray()) {
+            return collect(naming, rawType.getComponentType(), bindings, visited, names);
+        }
+        if (Collection.class.isAssignableFrom(rawType)) {
+            for (Type argument : arguments) {
+                if (!collect(naming, argument, bindings, visited, names)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (rawType.isPrimitive() || rawType.isEnum() || rawType.isInterface()
+                || isPlatformType(rawType)) {
+            return true;
+        }
+
+        // Resolve the type arguments, so that Page<User> and Page<Map<..>> are told apart.
+        Map<TypeVariable<?>, Type> classBindings = new HashMap<>();
+        TypeVariable<?>[] parameters = rawType.getTypeParameters();
+        for (int i = 0; i < parameters.length && i < arguments.length; i++) {
+            Type argument = arguments[i];
+            classBindings.put(parameters[i],
+                    argument instanceof TypeVariable && bindings.containsKey(argument)
+                            ? bindings.get(argument) : argument);
+        }
+        if (!visited.add(rawType.getName() + classBindings.values())) {
+            return true;
+        }
+
+        for (Class<?> c = rawType; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                        || field.isSynthetic()) {
+                    continue;
+                }
+                SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                if (serializedName != null) {
+                    names.add(serializedName.value());
+                    names.addAll(Arrays.asList(serializedName.alternate()));
+                } else {
+                    names.add(naming.translateName(field));
+                }
+                if (names.size() > MAX_NAMES) {
+                    return false;
+                }
+                if (!collect(naming, field.getGenericType(), classBindings, visited, names)) {
+                    return false;
+                }
+            }
+            Type superclass = c.getGenericSuperclass();
+            if (superclass instanceof ParameterizedType) {
+                Class<?> rawSuperclass = (Class<?>) ((ParameterizedType) superclass).getRawType();
+                TypeVariable<?>[] superParameters = rawSuperclass.getTypeParameters();
+                Type[] superArguments = ((ParameterizedType) superclass).getActualTypeArguments();
+                Map<TypeVariable<?>, Type> superBindings = new HashMap<>();
+                for (int i = 0; i < superParameters.length; i++) {
+                    Type argument = superArguments[i];
+                    superBindings.put(superParameters[i],
+                            argument instanceof TypeVariable && classBindings.containsKey(argument)
+                                    ? classBindings.get(argument) : argument);
+                }
+                classBindings = superBindings;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Platform classes are read by Gson's built-in adapters rather than field by field.
+     */
+    private static boolean isPlatformType(Class<?> rawType) {
+        String name = rawType.getName();
+        return name.startsWith("java.") || name.startsWith("javax.")
+                || name.startsWith("android.") || name.startsWith("com.google.gson.");
+    }
+}
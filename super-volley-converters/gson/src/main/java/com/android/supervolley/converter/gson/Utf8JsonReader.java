@@ -0,0 +1,857 @@
+package com.android.supervolley.converter.gson;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * A strict {@link JsonReader} which tokenizes UTF-8 bytes straight from an okio
+ * {@link BufferedSource}, instead of decoding the whole body to characters first.
+ * <p>
+ * Only string values, and names that aren't in the {@link NameTable}, are decoded; skipped values
+ * are never decoded, and known names are matched byte for byte and returned as the shared
+ * {@code String} of the table. Like Gson's own {@code JsonTreeReader} it extends
+ * {@link JsonReader}, so any {@link com.google.gson.TypeAdapter} can read from it, except Gson's
+ * map adapter, which depends on the internals of {@link JsonReader}; see {@link NameTable#forType}.
+ */
+final class Utf8JsonReader extends JsonReader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ByteString QUOTE_OR_SLASH = ByteString.encodeUtf8("\"\\");
+    private static final ByteString UTF_8_BOM = ByteString.decodeHex("efbbbf");
+    private static final ByteString UTF_16_BE_BOM = ByteString.decodeHex("feff");
+    private static final ByteString UTF_16_LE_BOM = ByteString.decodeHex("fffe");
+    private static final ByteString UTF_32_BE_BOM = ByteString.decodeHex("0000feff");
+    private static final long MIN_INCOMPLETE_INTEGER = Long.MIN_VALUE / 10;
+
+    private static final Reader UNREADABLE_READER = new Reader() {
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_DOUBLE_QUOTED = 8;
+    private static final int PEEKED_BUFFERED = 9;
+    private static final int PEEKED_DOUBLE_QUOTED_NAME = 10;
+    private static final int PEEKED_LONG = 11;
+    private static final int PEEKED_NUMBER = 12;
+    private static final int PEEKED_EOF = 13;
+
+    private static final int NUMBER_CHAR_NONE = 0;
+    private static final int NUMBER_CHAR_SIGN = 1;
+    private static final int NUMBER_CHAR_DIGIT = 2;
+    private static final int NUMBER_CHAR_DECIMAL = 3;
+    private static final int NUMBER_CHAR_FRACTION_DIGIT = 4;
+    private static final int NUMBER_CHAR_EXP_E = 5;
+    private static final int NUMBER_CHAR_EXP_SIGN = 6;
+    private static final int NUMBER_CHAR_EXP_DIGIT = 7;
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    private final BufferedSource source;
+    private final Buffer buffer;
+    private final NameTable names;
+
+    private int peeked = PEEKED_NONE;
+    private long peekedLong;
+    private int peekedNumberLength;
+    private String peekedString;
+
+    private int[] stack = new int[32];
+    private int stackSize;
+    private String[] pathNames = new String[32];
+    private int[] pathIndices = new int[32];
+
+    private Utf8JsonReader(BufferedSource source, NameTable names) {
+        super(UNREADABLE_READER);
+        this.source = source;
+        this.buffer = source.buffer();
+        this.names = names;
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns a reader of {@code body}, or null if it isn't encoded as UTF-8 and must be decoded
+     * by {@link ResponseBody#charStream()}.
+     */
+    static Utf8JsonReader forBody(ResponseBody body, NameTable names) throws IOException {
+        MediaType contentType = body.contentType();
+        if (contentType != null && !UTF_8.equals(contentType.charset(UTF_8))) {
+            return null;
+        }
+        BufferedSource source = body.source();
+        // Like charStream(), let a byte order mark override the declared charset.
+        if (source.rangeEquals(0, UTF_8_BOM)) {
+            source.skip(UTF_8_BOM.size());
+        } else if (source.rangeEquals(0, UTF_16_BE_BOM) || source.rangeEquals(0, UTF_16_LE_BOM)
+                || source.rangeEquals(0, UTF_32_BE_BOM)) {
+            return null;
+        }
+        return new Utf8JsonReader(source, names);
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_BEGIN_ARRAY) {
+            throw new IllegalStateException("Expected BEGIN_ARRAY but was " + peek() + locationString());
+        }
+        push(EMPTY_ARRAY);
+        pathIndices[stackSize - 1] = 0;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_END_ARRAY) {
+            throw new IllegalStateException("Expected END_ARRAY but was " + peek() + locationString());
+        }
+        stackSize--;
+        pathIndices[stackSize - 1]++;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_BEGIN_OBJECT) {
+            throw new IllegalStateException("Expected BEGIN_OBJECT but was " + peek() + locationString());
+        }
+        push(EMPTY_OBJECT);
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_END_OBJECT) {
+            throw new IllegalStateException("Expected END_OBJECT but was " + peek() + locationString());
+        }
+        stackSize--;
+        pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
+        pathIndices[stackSize - 1]++;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        switch (p) {
+            case PEEKED_BEGIN_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case PEEKED_DOUBLE_QUOTED_NAME:
+                return JsonToken.NAME;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE:
+                return JsonToken.BOOLEAN;
+            case PEEKED_NULL:
+                return JsonToken.NULL;
+            case PEEKED_DOUBLE_QUOTED:
+            case PEEKED_BUFFERED:
+                return JsonToken.STRING;
+            case PEEKED_LONG:
+            case PEEKED_NUMBER:
+                return JsonToken.NUMBER;
+            case PEEKED_EOF:
+                return JsonToken.END_DOCUMENT;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_DOUBLE_QUOTED_NAME) {
+            throw new IllegalStateException("Expected a name but was " + peek() + locationString());
+        }
+        String result = readName();
+        peeked = PEEKED_NONE;
+        pathNames[stackSize - 1] = result;
+        return result;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        String result;
+        if (p == PEEKED_DOUBLE_QUOTED) {
+            result = nextQuotedValue();
+        } else if (p == PEEKED_BUFFERED) {
+            result = peekedString;
+            peekedString = null;
+        } else if (p == PEEKED_LONG) {
+            result = Long.toString(peekedLong);
+        } else if (p == PEEKED_NUMBER) {
+            result = buffer.readUtf8(peekedNumberLength);
+        } else {
+            throw new IllegalStateException("Expected a string but was " + peek() + locationString());
+        }
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        boolean result;
+        if (p == PEEKED_TRUE) {
+            result = true;
+        } else if (p == PEEKED_FALSE) {
+            result = false;
+        } else {
+            throw new IllegalStateException("Expected a boolean but was " + peek() + locationString());
+        }
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p != PEEKED_NULL) {
+            throw new IllegalStateException("Expected null but was " + peek() + locationString());
+        }
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p == PEEKED_LONG) {
+            peeked = PEEKED_NONE;
+            pathIndices[stackSize - 1]++;
+            return (double) peekedLong;
+        }
+        bufferNumber(p, "a double");
+        double result = Double.parseDouble(peekedString); // don't catch this NumberFormatException.
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            throw new MalformedJsonException("JSON forbids NaN and infinities: " + result
+                    + locationString());
+        }
+        peekedString = null;
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        if (p == PEEKED_LONG) {
+            peeked = PEEKED_NONE;
+            pathIndices[stackSize - 1]++;
+            return peekedLong;
+        }
+        if (p == PEEKED_DOUBLE_QUOTED) {
+            peekedString = nextQuotedValue();
+            try {
+                long result = Long.parseLong(peekedString);
+                peekedString = null;
+                peeked = PEEKED_NONE;
+                pathIndices[stackSize - 1]++;
+                return result;
+            } catch (NumberFormatException ignored) {
+                // Fall back to parse as a double below.
+            }
+            p = PEEKED_BUFFERED;
+        }
+        bufferNumber(p, "a long");
+        double asDouble = Double.parseDouble(peekedString); // don't catch this NumberFormatException.
+        long result = (long) asDouble;
+        if (result != asDouble) { // Make sure no precision was lost casting to 'long'.
+            throw new NumberFormatException("Expected a long but was " + peekedString
+                    + locationString());
+        }
+        peekedString = null;
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        int p = peeked != PEEKED_NONE ? peeked : doPeek();
+        int result;
+        if (p == PEEKED_LONG) {
+            result = (int) peekedLong;
+            if (peekedLong != result) { // Make sure no precision was lost casting to 'int'.
+                throw new NumberFormatException("Expected an int but was " + peekedLong
+                        + locationString());
+            }
+            peeked = PEEKED_NONE;
+            pathIndices[stackSize - 1]++;
+            return result;
+        }
+        if (p == PEEKED_DOUBLE_QUOTED) {
+            peekedString = nextQuotedValue();
+            try {
+                result = Integer.parseInt(peekedString);
+                peekedString = null;
+                peeked = PEEKED_NONE;
+                pathIndices[stackSize - 1]++;
+                return result;
+            } catch (NumberFormatException ignored) {
+                // Fall back to parse as a double below.
+            }
+            p = PEEKED_BUFFERED;
+        }
+        bufferNumber(p, "an int");
+        double asDouble = Double.parseDouble(peekedString); // don't catch this NumberFormatException.
+        result = (int) asDouble;
+        if (result != asDouble) { // Make sure no precision was lost casting to 'int'.
+            throw new NumberFormatException("Expected an int but was " + peekedString
+                    + locationString());
+        }
+        peekedString = null;
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            int p = peeked != PEEKED_NONE ? peeked : doPeek();
+            if (p == PEEKED_BEGIN_ARRAY) {
+                push(EMPTY_ARRAY);
+                count++;
+            } else if (p == PEEKED_BEGIN_OBJECT) {
+                push(EMPTY_OBJECT);
+                count++;
+            } else if (p == PEEKED_END_ARRAY || p == PEEKED_END_OBJECT) {
+                stackSize--;
+                count--;
+            } else if (p == PEEKED_DOUBLE_QUOTED || p == PEEKED_DOUBLE_QUOTED_NAME) {
+                skipQuotedValue();
+            } else if (p == PEEKED_NUMBER) {
+                buffer.skip(peekedNumberLength);
+            } else if (p == PEEKED_BUFFERED) {
+                peekedString = null;
+            }
+            peeked = PEEKED_NONE;
+        } while (count != 0);
+
+        pathIndices[stackSize - 1]++;
+        pathNames[stackSize - 1] = "null";
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = PEEKED_NONE;
+        stack[0] = CLOSED;
+        stackSize = 1;
+        buffer.clear();
+        source.close();
+    }
+
+    @Override
+    public String getPath() {
+        StringBuilder result = new StringBuilder().append('$');
+        for (int i = 0; i < stackSize; i++) {
+            switch (stack[i]) {
+                case EMPTY_ARRAY:
+                case NONEMPTY_ARRAY:
+                    result.append('[').append(pathIndices[i]).append(']');
+                    break;
+                case EMPTY_OBJECT:
+                case DANGLING_NAME:
+                case NONEMPTY_OBJECT:
+                    result.append('.');
+                    if (pathNames[i] != null) {
+                        result.append(pathNames[i]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Utf8JsonReader(" + source + ")";
+    }
+
+    private String locationString() {
+        return " at path " + getPath();
+    }
+
+    private void push(int newTop) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+            pathIndices = Arrays.copyOf(pathIndices, stackSize * 2);
+            pathNames = Arrays.copyOf(pathNames, stackSize * 2);
+        }
+        stack[stackSize++] = newTop;
+    }
+
+    /**
+     * Moves the number or quoted value of {@code p} into {@link #peekedString}.
+     */
+    private void bufferNumber(int p, String expected) throws IOException {
+        if (p == PEEKED_NUMBER) {
+            peekedString = buffer.readUtf8(peekedNumberLength);
+        } else if (p == PEEKED_DOUBLE_QUOTED) {
+            peekedString = nextQuotedValue();
+        } else if (p != PEEKED_BUFFERED) {
+            throw new IllegalStateException("Expected " + expected + " but was " + peek()
+                    + locationString());
+        }
+        peeked = PEEKED_BUFFERED;
+    }
+
+    private int doPeek() throws IOException {
+        int peekStack = stack[stackSize - 1];
+        if (peekStack == EMPTY_ARRAY) {
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+        } else if (peekStack == NONEMPTY_ARRAY) {
+            // Look for a comma before the next element.
+            int c = nextNonWhitespace(true);
+            buffer.readByte(); // consume ']' or ','.
+            switch (c) {
+                case ']':
+                    return peeked = PEEKED_END_ARRAY;
+                case ',':
+                    break;
+                default:
+                    throw syntaxError("Unterminated array");
+            }
+        } else if (peekStack == EMPTY_OBJECT || peekStack == NONEMPTY_OBJECT) {
+            stack[stackSize - 1] = DANGLING_NAME;
+            // Look for a comma before the next element.
+            if (peekStack == NONEMPTY_OBJECT) {
+                int c = nextNonWhitespace(true);
+                buffer.readByte(); // Consume '}' or ','.
+                switch (c) {
+                    case '}':
+                        return peeked = PEEKED_END_OBJECT;
+                    case ',':
+                        break;
+                    default:
+                        throw syntaxError("Unterminated object");
+                }
+            }
+            int c = nextNonWhitespace(true);
+            switch (c) {
+                case '"':
+                    buffer.readByte(); // consume the '\"'.
+                    return peeked = PEEKED_DOUBLE_QUOTED_NAME;
+                case '}':
+                    if (peekStack != NONEMPTY_OBJECT) {
+                        buffer.readByte(); // consume the '}'.
+                        return peeked = PEEKED_END_OBJECT;
+                    }
+                    throw syntaxError("Expected name");
+                default:
+                    throw syntaxError("Expected name");
+            }
+        } else if (peekStack == DANGLING_NAME) {
+            stack[stackSize - 1] = NONEMPTY_OBJECT;
+            // Look for a colon before the value.
+            int c = nextNonWhitespace(true);
+            buffer.readByte(); // Consume ':'.
+            if (c != ':') {
+                throw syntaxError("Expected ':'");
+            }
+        } else if (peekStack == EMPTY_DOCUMENT) {
+            stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        } else if (peekStack == NONEMPTY_DOCUMENT) {
+            int c = nextNonWhitespace(false);
+            if (c == -1) {
+                return peeked = PEEKED_EOF;
+            }
+            throw syntaxError("Expected EOF");
+        } else if (peekStack == CLOSED) {
+            throw new IllegalStateException("JsonReader is closed");
+        }
+
+        int c = nextNonWhitespace(true);
+        switch (c) {
+            case ']':
+                if (peekStack == EMPTY_ARRAY) {
+                    buffer.readByte(); // Consume ']'.
+                    return peeked = PEEKED_END_ARRAY;
+                }
+                throw syntaxError("Unexpected value");
+            case '"':
+                buffer.readByte(); // Consume '\"'.
+                return peeked = PEEKED_DOUBLE_QUOTED;
+            case '[':
+                buffer.readByte(); // Consume '['.
+                return peeked = PEEKED_BEGIN_ARRAY;
+            case '{':
+                buffer.readByte(); // Consume '{'.
+                return peeked = PEEKED_BEGIN_OBJECT;
+            default:
+        }
+
+        int result = peekKeyword();
+        if (result != PEEKED_NONE) {
+            return result;
+        }
+        result = peekNumber();
+        if (result != PEEKED_NONE) {
+            return result;
+        }
+        throw syntaxError("Expected value");
+    }
+
+    private int peekKeyword() throws IOException {
+        // Figure out which keyword we're matching against by its first character.
+        byte c = buffer.getByte(0);
+        String keyword;
+        String keywordUpper;
+        int peeking;
+        if (c == 't' || c == 'T') {
+            keyword = "true";
+            keywordUpper = "TRUE";
+            peeking = PEEKED_TRUE;
+        } else if (c == 'f' || c == 'F') {
+            keyword = "false";
+            keywordUpper = "FALSE";
+            peeking = PEEKED_FALSE;
+        } else if (c == 'n' || c == 'N') {
+            keyword = "null";
+            keywordUpper = "NULL";
+            peeking = PEEKED_NULL;
+        } else {
+            return PEEKED_NONE;
+        }
+
+        // Confirm that chars [1..length) match the keyword.
+        int length = keyword.length();
+        for (int i = 1; i < length; i++) {
+            if (!source.request(i + 1)) {
+                return PEEKED_NONE;
+            }
+            c = buffer.getByte(i);
+            if (c != keyword.charAt(i) && c != keywordUpper.charAt(i)) {
+                return PEEKED_NONE;
+            }
+        }
+
+        if (source.request(length + 1) && isLiteral(buffer.getByte(length))) {
+            return PEEKED_NONE; // Don't match trues, falsey or nullsoft!
+        }
+
+        // We've found the keyword followed either by EOF or by a non-literal character.
+        buffer.skip(length);
+        return peeked = peeking;
+    }
+
+    private int peekNumber() throws IOException {
+        long value = 0; // Negative to accommodate Long.MIN_VALUE more easily.
+        boolean negative = false;
+        boolean fitsInLong = true;
+        int last = NUMBER_CHAR_NONE;
+
+        int i = 0;
+
+        charactersOfNumber:
+        for (; true; i++) {
+            if (!source.request(i + 1)) {
+                break;
+            }
+
+            byte c = buffer.getByte(i);
+            switch (c) {
+                case '-':
+                    if (last == NUMBER_CHAR_NONE) {
+                        negative = true;
+                        last = NUMBER_CHAR_SIGN;
+                        continue;
+                    } else if (last == NUMBER_CHAR_EXP_E) {
+                        last = NUMBER_CHAR_EXP_SIGN;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case '+':
+                    if (last == NUMBER_CHAR_EXP_E) {
+                        last = NUMBER_CHAR_EXP_SIGN;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case 'e':
+                case 'E':
+                    if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT) {
+                        last = NUMBER_CHAR_EXP_E;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case '.':
+                    if (last == NUMBER_CHAR_DIGIT) {
+                        last = NUMBER_CHAR_DECIMAL;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                default:
+                    if (c < '0' || c > '9') {
+                        if (!isLiteral(c)) {
+                            break charactersOfNumber;
+                        }
+                        return PEEKED_NONE;
+                    }
+                    if (last == NUMBER_CHAR_SIGN || last == NUMBER_CHAR_NONE) {
+                        value = -(c - '0');
+                        last = NUMBER_CHAR_DIGIT;
+                    } else if (last == NUMBER_CHAR_DIGIT) {
+                        if (value == 0) {
+                            return PEEKED_NONE; // Leading '0' prefix is not allowed (since it could be octal).
+                        }
+                        long newValue = value * 10 - (c - '0');
+                        fitsInLong &= value > MIN_INCOMPLETE_INTEGER
+                                || (value == MIN_INCOMPLETE_INTEGER && newValue < value);
+                        value = newValue;
+                    } else if (last == NUMBER_CHAR_DECIMAL) {
+                        last = NUMBER_CHAR_FRACTION_DIGIT;
+                    } else if (last == NUMBER_CHAR_EXP_E || last == NUMBER_CHAR_EXP_SIGN) {
+                        last = NUMBER_CHAR_EXP_DIGIT;
+                    }
+            }
+        }
+
+        // We've read a complete number. Decide if it's a PEEKED_LONG or a PEEKED_NUMBER.
+        if (last == NUMBER_CHAR_DIGIT && fitsInLong && (value != Long.MIN_VALUE || negative)
+                && (value != 0 || !negative)) {
+            peekedLong = negative ? value : -value;
+            buffer.skip(i);
+            return peeked = PEEKED_LONG;
+        } else if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT
+                || last == NUMBER_CHAR_EXP_DIGIT) {
+            peekedNumberLength = i;
+            return peeked = PEEKED_NUMBER;
+        } else {
+            return PEEKED_NONE;
+        }
+    }
+
+    private static boolean isLiteral(int c) {
+        switch (c) {
+            case '/':
+            case '\\':
+            case ';':
+            case '#':
+            case '=':
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case ':':
+            case ',':
+            case ' ':
+            case '\t':
+            case '\f':
+            case '\r':
+            case '\n':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Returns the next character that isn't whitespace, without consuming it.
+     */
+    private int nextNonWhitespace(boolean throwOnEof) throws IOException {
+        int p = 0;
+        while (source.request(p + 1)) {
+            int c = buffer.getByte(p++) & 0xff;
+            if (c == '\n' || c == ' ' || c == '\r' || c == '\t') {
+                continue;
+            }
+            buffer.skip(p - 1);
+            return c;
+        }
+        if (throwOnEof) {
+            throw new EOFException("End of input" + locationString());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name whose opening quote was consumed, preferring the shared instance of a known
+     * name to decoding a new one.
+     */
+    private String readName() throws IOException {
+        long index = source.indexOfElement(QUOTE_OR_SLASH);
+        if (index != -1L && buffer.getByte(index) == '"') {
+            String name = names.get(buffer, index);
+            if (name != null) {
+                buffer.skip(index + 1); // Also consume the closing quote.
+                return name;
+            }
+        }
+        return nextQuotedValue();
+    }
+
+    /**
+     * Returns the string up to but not including the closing quote, unescaping any character
+     * escape sequences encountered along the way. The opening quote should have already been read.
+     * This consumes the closing quote, but does not include it in the returned string.
+     */
+    private String nextQuotedValue() throws IOException {
+        StringBuilder builder = null;
+        while (true) {
+            long index = source.indexOfElement(QUOTE_OR_SLASH);
+            if (index == -1L) {
+                throw syntaxError("Unterminated string");
+            }
+
+            // If we've got an escape character, we're going to need a string builder.
+            if (buffer.getByte(index) == '\\') {
+                if (builder == null) {
+                    builder = new StringBuilder();
+                }
+                builder.append(buffer.readUtf8(index));
+                buffer.readByte(); // '\'
+                builder.append(readEscapeCharacter());
+                continue;
+            }
+
+            // If it isn't the escape character, it's the quote. Return the string.
+            if (builder == null) {
+                String result = buffer.readUtf8(index);
+                buffer.readByte(); // Consume the quote character.
+                return result;
+            } else {
+                builder.append(buffer.readUtf8(index));
+                buffer.readByte(); // Consume the quote character.
+                return builder.toString();
+            }
+        }
+    }
+
+    private void skipQuotedValue() throws IOException {
+        while (true) {
+            long index = source.indexOfElement(QUOTE_OR_SLASH);
+            if (index == -1L) {
+                throw syntaxError("Unterminated string");
+            }
+            byte c = buffer.getByte(index);
+            buffer.skip(index + 1);
+            if (c != '\\') {
+                return;
+            }
+            readEscapeCharacter();
+        }
+    }
+
+    /**
+     * Unescapes the character identified by the character or characters that immediately follow
+     * a backslash. The backslash '\' should have already been read.
+     */
+    private char readEscapeCharacter() throws IOException {
+        if (!source.request(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+
+        byte escaped = buffer.readByte();
+        switch (escaped) {
+            case 'u':
+                if (!source.request(4)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                // Equivalent to Integer.parseInt(stringPool.get(buffer, pos, 4), 16);
+                char result = 0;
+                for (int i = 0; i < 4; i++) {
+                    byte c = buffer.getByte(i);
+                    result <<= 4;
+                    if (c >= '0' && c <= '9') {
+                        result += (c - '0');
+                    } else if (c >= 'a' && c <= 'f') {
+                        result += (c - 'a' + 10);
+                    } else if (c >= 'A' && c <= 'F') {
+                        result += (c - 'A' + 10);
+                    } else {
+                        throw new NumberFormatException("\\u" + buffer.readUtf8(4));
+                    }
+                }
+                buffer.skip(4);
+                return result;
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            case '\n':
+            case '\'':
+            case '"':
+            case '\\':
+            case '/':
+                return (char) escaped;
+
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private IOException syntaxError(String message) throws IOException {
+        throw new MalformedJsonException(message + locationString());
+    }
+}
@@ -0,0 +1,383 @@
+package com.android.supervolley.converter.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Reads the same documents with {@link Utf8JsonReader} and Gson's own {@link JsonReader}, and
+ * expects the same tokens, values, paths and failures from both.
+ */
+public final class Utf8JsonReaderTest {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final Gson GSON = new Gson();
+    private static final NameTable NAMES = NameTable.forType(GSON, Model.class);
+
+    private enum Numbers {
+        LONG, INT, DOUBLE, STRING
+    }
+
+    static final class Model {
+        String ab;
+        long id;
+        @SerializedName(value = "user_name", alternate = "login")
+        String userName;
+        List<Model> children;
+    }
+
+    static final class WithMap {
+        Map<String, Model> byId;
+    }
+
+    static final class Page<T> {
+        List<T> items;
+    }
+
+    @Test
+    public void escapes() throws IOException {
+        assertSameTokens("[\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\", \"\\u00e9\\u20AC\\ud83d\\ude00\","
+                + " \"\\u0000\", \"\u00e9\u20ac\ud83d\ude00\", \"\"]");
+        assertSameTokens("{\"a\\u0062\": 1, \"\\u0069d\": 2, \"us\\u0065r_name\": \"x\"}");
+        assertSameTokens("[\"\\x\"]");
+        assertSameTokens("[\"\\'\\\n\"]");
+        // A reader is undefined after a malformed unicode escape, so read these as strings only.
+        assertSameTokens("[\"\\u00\"]", Numbers.STRING);
+        assertSameTokens("[\"\\uzzzz\"]", Numbers.STRING);
+        assertSameTokens("[\"\\u00");
+        assertSameTokens("[\"unterminated");
+    }
+
+    @Test
+    public void names() throws IOException {
+        assertSameTokens("{\"ab\": 1, \"id\": 2, \"user_name\": 3, \"login\": 4, \"unknown\": 5,"
+                + " \"\u00e9\": 6, \"\": 7, \"children\": [{\"ab\": null}]}");
+        assertSameTokens("{\"ab\" 1}");
+        assertSameTokens("{ab: 1}");
+        assertSameTokens("{\"ab\": 1,}");
+    }
+
+    @Test
+    public void integers() throws IOException {
+        assertSameTokens("[0, -0, 1, -1, 2147483647, 2147483648, -2147483648, -2147483649,"
+                + " 9223372036854775807, -9223372036854775808, 9223372036854775808,"
+                + " -9223372036854775809, 12345678901234567890123]");
+        assertSameTokens("[\"1\", \"2147483648\", \"9223372036854775808\", \"1.0\", \"x\"]");
+        assertSameTokens("[01]");
+        assertSameTokens("[-]");
+        assertSameTokens("[--1]");
+    }
+
+    @Test
+    public void doubles() throws IOException {
+        assertSameTokens("[-0.0, 0.0, 1.0, 1.5, -1.5, 0.1, 1e2, 1E2, 1e+2, 1e-2, -1.25e-3,"
+                + " 4.9e-324, 1.7976931348623157e308, 9007199254740993, 1e400]");
+        assertSameTokens("[1e-400, 2.5]");
+        assertSameTokens("[1.]");
+        assertSameTokens("[.5]");
+        assertSameTokens("[1e]");
+        assertSameTokens("[1x]");
+        assertSameTokens("[NaN]");
+    }
+
+    @Test
+    public void literals() throws IOException {
+        assertSameTokens("[true, false, null, {\"ab\": null}]");
+        assertSameTokens("[tru]");
+        assertSameTokens("[nul, 1]");
+        assertSameTokens("[truex]");
+        assertSameTokens("\"top level\"");
+        assertSameTokens("");
+        assertSameTokens("[1] [2]");
+        assertSameTokens("[1, ]");
+        assertSameTokens("[1 2]");
+    }
+
+    @Test
+    public void nestedSkipValue() throws IOException {
+        String json = "{\"ab\": {\"b\": [1, {\"c\": [], \"d\": {\"e\": \"\\\"}\"}}, -0.5e1],"
+                + " \"f\": \"x\"}, \"id\": 2, \"children\": [[[]], {}, \"\\u005d\"],"
+                + " \"user_name\": true}";
+        assertSameSkips(json, "ab");
+        assertSameSkips(json, "children");
+        assertSameSkips(json, "id");
+        assertSameSkips(json, "ab", "id", "children", "user_name");
+        assertSameSkips("[[1, [2, [3]], {\"a\": [4]}], 5]");
+        assertSameSkips("{\"ab\": [1, {\"c\": ]}", "ab");
+    }
+
+    @Test
+    public void namesSplitAcrossSegments() throws IOException {
+        String json = "{\"ab\": 1, \"user_name\": \"\u00e9\u20ac\ud83d\ude00\", \"unknown\": 2.5,"
+                + " \"children\": [{\"id\": -0}]}";
+        for (int offset = 0; offset < json.length(); offset++) {
+            // Pad the document so that its offset-th character straddles the end of a segment.
+            char[] padding = new char[8192 - offset];
+            Arrays.fill(padding, ' ');
+            String padded = new String(padding) + json;
+            for (Numbers numbers : Numbers.values()) {
+                assertEquals(padded, tokens(gsonReader(padded), numbers),
+                        tokens(utf8Reader(padded, false), numbers));
+            }
+        }
+    }
+
+    @Test
+    public void byteByByte() throws IOException {
+        String json = "{\"ab\": \"\\u00e9\\\"\", \"user_name\": \"\u00e9\u20ac\ud83d\ude00\","
+                + " \"login\": null, \"id\": 9223372036854775807,"
+                + " \"children\": [{\"ab\": -1.5e-3}, true]}";
+        for (Numbers numbers : Numbers.values()) {
+            assertEquals(tokens(gsonReader(json), numbers),
+                    tokens(utf8Reader(json, true), numbers));
+        }
+        assertEquals(skips(gsonReader(json), "children", "ab"),
+                skips(utf8Reader(json, true), "children", "ab"));
+    }
+
+    @Test
+    public void byteOrderMarks() throws IOException {
+        ResponseBody withUtf8Bom = ResponseBody.create(JSON,
+                new Buffer().write(new byte[]{(byte) 0xef, (byte) 0xbb, (byte) 0xbf})
+                        .writeUtf8("[1]").readByteArray());
+        assertEquals(tokens(gsonReader("[1]"), Numbers.LONG),
+                tokens(Utf8JsonReader.forBody(withUtf8Bom, NAMES), Numbers.LONG));
+
+        ResponseBody withUtf16Bom = ResponseBody.create(JSON,
+                new byte[]{(byte) 0xfe, (byte) 0xff, 0, '[', 0, ']'});
+        assertNull(Utf8JsonReader.forBody(withUtf16Bom, NAMES));
+        assertNull(Utf8JsonReader.forBody(
+                ResponseBody.create(MediaType.parse("application/json; charset=utf-16"), "[]"),
+                NAMES));
+        assertNotNull(Utf8JsonReader.forBody(ResponseBody.create(null, "[]"), NAMES));
+    }
+
+    @Test
+    public void fallsBackForMaps() {
+        assertNotNull(NAMES);
+        assertNull(NameTable.forType(GSON, new TypeToken<Map<String, Model>>() {}.getType()));
+        assertNull(NameTable.forType(GSON, WithMap.class));
+        assertNull(NameTable.forType(GSON, new TypeToken<List<WithMap>>() {}.getType()));
+        assertNull(NameTable.forType(GSON,
+                new TypeToken<Page<Map<String, String>>>() {}.getType()));
+        assertNotNull(NameTable.forType(GSON, new TypeToken<Page<Model>>() {}.getType()));
+        assertNotNull(NameTable.forType(GSON, new TypeToken<List<Model>>() {}.getType()));
+        assertNotNull(NameTable.forType(GSON, Model[].class));
+    }
+
+    @Test
+    public void fallsBackWhenLenient() {
+        Gson lenient = new GsonBuilder().setLenient().create();
+        assertNull(NameTable.forType(lenient, Model.class));
+    }
+
+    @Test
+    public void nameTable() {
+        assertEquals("ab", NAMES.get(new Buffer().writeUtf8("ab\""), 2));
+        assertEquals("user_name", NAMES.get(new Buffer().writeUtf8("user_name"), 9));
+        assertEquals("login", NAMES.get(new Buffer().writeUtf8("login"), 5));
+        assertNull(NAMES.get(new Buffer().writeUtf8("userName"), 8));
+        assertNull(NAMES.get(new Buffer().writeUtf8("a"), 1));
+        assertNull(NAMES.get(new Buffer().writeUtf8("abc"), 3));
+    }
+
+    private static void assertSameTokens(String json) throws IOException {
+        assertSameTokens(json, Numbers.values());
+    }
+
+    private static void assertSameTokens(String json, Numbers... modes) throws IOException {
+        for (Numbers numbers : modes) {
+            assertEquals(json + " read as " + numbers, tokens(gsonReader(json), numbers),
+                    tokens(utf8Reader(json, false), numbers));
+        }
+    }
+
+    private static void assertSameSkips(String json, String... skippedNames) throws IOException {
+        assertEquals(json, skips(gsonReader(json), skippedNames),
+                skips(utf8Reader(json, false), skippedNames));
+    }
+
+    private static JsonReader gsonReader(String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+    private static JsonReader utf8Reader(String json, boolean byteByByte) throws IOException {
+        Buffer buffer = new Buffer().writeUtf8(json);
+        Source source = buffer;
+        if (byteByByte) {
+            source = new ForwardingSource(buffer) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    return super.read(sink, Math.min(byteCount, 1));
+                }
+            };
+        }
+        ResponseBody body = ResponseBody.create(JSON, -1, Okio.buffer(source));
+        return Utf8JsonReader.forBody(body, NAMES);
+    }
+
+    /**
+     * Reads every token of {@code reader}, with {@code numbers} deciding how numbers are read,
+     * and records each one with the path after it, ending with the failure if there is one.
+     */
+    private static List<String> tokens(JsonReader reader, Numbers numbers) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        int depth = 0;
+        try {
+            while (true) {
+                JsonToken token = reader.peek();
+                String value;
+                switch (token) {
+                    case BEGIN_ARRAY:
+                        reader.beginArray();
+                        depth++;
+                        value = "[";
+                        break;
+                    case END_ARRAY:
+                        reader.endArray();
+                        depth--;
+                        value = "]";
+                        break;
+                    case BEGIN_OBJECT:
+                        reader.beginObject();
+                        depth++;
+                        value = "{";
+                        break;
+                    case END_OBJECT:
+                        reader.endObject();
+                        depth--;
+                        value = "}";
+                        break;
+                    case NAME:
+                        value = "name " + reader.nextName();
+                        break;
+                    case STRING:
+                    case NUMBER:
+                        value = token + " " + number(reader, numbers);
+                        break;
+                    case BOOLEAN:
+                        value = "boolean " + reader.nextBoolean();
+                        break;
+                    case NULL:
+                        reader.nextNull();
+                        value = "null";
+                        break;
+                    case END_DOCUMENT:
+                        tokens.add("end");
+                        return tokens;
+                    default:
+                        throw new AssertionError(token);
+                }
+                // Gson versions disagree on hasNext() at the end of the document.
+                tokens.add(value + " at " + reader.getPath()
+                        + (depth > 0 ? " hasNext " + reader.hasNext() : ""));
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            tokens.add(e.getClass().getSimpleName() + " at " + reader.getPath());
+            return tokens;
+        }
+    }
+
+    private static String number(JsonReader reader, Numbers numbers) throws IOException {
+        switch (numbers) {
+            case LONG:
+                try {
+                    return "long " + reader.nextLong();
+                } catch (NumberFormatException e) {
+                    return "not a long, double " + reader.nextDouble();
+                }
+            case INT:
+                try {
+                    return "int " + reader.nextInt();
+                } catch (NumberFormatException e) {
+                    return "not an int, string " + reader.nextString();
+                }
+            case DOUBLE:
+                try {
+                    return "double " + reader.nextDouble();
+                } catch (NumberFormatException e) {
+                    return "not a double, string " + reader.nextString();
+                }
+            case STRING:
+                return "string " + reader.nextString();
+            default:
+                throw new AssertionError(numbers);
+        }
+    }
+
+    /**
+     * Reads {@code reader} like {@link #tokens}, but skips the values of {@code skippedNames}
+     * and every value nested two arrays deep.
+     */
+    private static List<String> skips(JsonReader reader, String... skippedNames)
+            throws IOException {
+        List<String> skipped = Arrays.asList(skippedNames);
+        List<String> tokens = new ArrayList<>();
+        int arrays = 0;
+        try {
+            while (true) {
+                JsonToken token = reader.peek();
+                if (token == JsonToken.END_DOCUMENT) {
+                    tokens.add("end");
+                    return tokens;
+                }
+                if (token == JsonToken.NAME) {
+                    String name = reader.nextName();
+                    if (skipped.contains(name)) {
+                        reader.skipValue();
+                        tokens.add("skipped " + name + " at " + reader.getPath());
+                    } else {
+                        tokens.add("name " + name + " at " + reader.getPath());
+                    }
+                } else if (token == JsonToken.BEGIN_ARRAY) {
+                    if (arrays == 2) {
+                        reader.skipValue();
+                        tokens.add("skipped array at " + reader.getPath());
+                    } else {
+                        reader.beginArray();
+                        arrays++;
+                        tokens.add("[ at " + reader.getPath());
+                    }
+                } else if (token == JsonToken.END_ARRAY) {
+                    reader.endArray();
+                    arrays--;
+                    tokens.add("] at " + reader.getPath());
+                } else if (token == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    tokens.add("{ at " + reader.getPath());
+                } else if (token == JsonToken.END_OBJECT) {
+                    reader.endObject();
+                    tokens.add("} at " + reader.getPath());
+                } else {
+                    reader.skipValue();
+                    tokens.add("skipped " + token + " at " + reader.getPath());
+                }
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            tokens.add(e.getClass().getSimpleName() + " at " + reader.getPath());
+            return tokens;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.android.supervolley.converter.jackson;
 
 import com.android.supervolley.Converter;
+import com.android.supervolley.ElementStream;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
@@ -21,6 +25,11 @@ import static com.android.supervolley.SuperVolley.Builder;
  * handle all types. If you are mixing JSON serialization with something else (such as protocol
  * buffers), you must {@linkplain Builder#addConverterFactory(Converter.Factory) add this
  * instance} last to allow the other converters a chance to see their types.
+ * <p>
+ * All conversion goes through the mapper's {@link com.fasterxml.jackson.core.JsonFactory}, which
+ * recycles its parser and generator buffers per thread. Responses are parsed from their bytes
+ * unless they declare a charset other than UTF-8, and request bodies are written by the UTF-8
+ * generator directly into an okio buffer.
  */
 public final class JacksonConverterFactory extends Converter.Factory {
     /**
@@ -38,6 +47,9 @@ public final class JacksonConverterFactory extends Converter.Factory {
     }
 
     private final ObjectMapper mapper;
+    // Converters don't depend on annotations, so methods with the same type share one instance.
+    private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
 
     private JacksonConverterFactory(ObjectMapper mapper) {
         if (mapper == null) throw new NullPointerException("mapper == null");
@@ -46,15 +58,41 @@ public final class JacksonConverterFactory extends Converter.Factory {
 
     @Override
     public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations) {
-        JavaType javaType = mapper.getTypeFactory().constructType(type);
-        ObjectReader reader = mapper.readerFor(javaType);
-        return new JacksonResponseBodyConverter<>(reader);
+        if (getRawType(type) == ElementStream.class && type instanceof ParameterizedType) {
+            Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+            return new JacksonElementStreamConverter<>(readerFor(elementType));
+        }
+        return new JacksonResponseBodyConverter<>(readerFor(type));
     }
 
     @Override
     public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations) {
+        return new JacksonRequestBodyConverter<>(writerFor(type));
+    }
+
+    private ObjectReader readerFor(Type type) {
+        JavaType javaType = mapper.getTypeFactory().constructType(type);
+        ObjectReader reader = readers.get(javaType);
+        if (reader == null) {
+            reader = mapper.readerFor(javaType);
+            ObjectReader existing = readers.putIfAbsent(javaType, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    private ObjectWriter writerFor(Type type) {
         JavaType javaType = mapper.getTypeFactory().constructType(type);
-        ObjectWriter writer = mapper.writerFor(javaType);
-        return new JacksonRequestBodyConverter<>(writer);
+        ObjectWriter writer = writers.get(javaType);
+        if (writer == null) {
+            writer = mapper.writerFor(javaType);
+            ObjectWriter existing = writers.putIfAbsent(javaType, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
     }
 }
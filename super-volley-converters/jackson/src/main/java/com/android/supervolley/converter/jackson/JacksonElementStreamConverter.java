@@ -0,0 +1,82 @@
+package com.android.supervolley.converter.jackson;
+
+import com.android.supervolley.Converter;
+import com.android.supervolley.ElementStream;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Decodes a top-level JSON array lazily, one element per {@link ElementStream#next()}.
+ */
+final class JacksonElementStreamConverter<T> implements Converter<ResponseBody, ElementStream<T>> {
+    private final ObjectReader adapter;
+
+    JacksonElementStreamConverter(ObjectReader adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public ElementStream<T> convert(ResponseBody value) throws IOException {
+        JsonParser parser = null;
+        try {
+            parser = JacksonResponseBodyConverter.isUtf8(value)
+                    ? adapter.getFactory().createParser(value.byteStream())
+                    : adapter.getFactory().createParser(value.charStream());
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array but was " + parser.getCurrentToken());
+            }
+        } catch (IOException | RuntimeException e) {
+            value.close();
+            throw e;
+        }
+        return new JsonArrayStream<>(value, parser, adapter);
+    }
+
+    private static final class JsonArrayStream<T> implements ElementStream<T> {
+        private final ResponseBody body;
+        private final JsonParser parser;
+        private final ObjectReader adapter;
+        private JsonToken next;
+        private boolean done;
+
+        JsonArrayStream(ResponseBody body, JsonParser parser, ObjectReader adapter) {
+            this.body = body;
+            this.parser = parser;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            if (done) return false;
+            if (next == null) {
+                next = parser.nextToken();
+            }
+            if (next != null && next != JsonToken.END_ARRAY) return true;
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() throws IOException {
+            if (!hasNext()) throw new NoSuchElementException();
+            next = null;
+            return adapter.readValue(parser);
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+            }
+            body.close();
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.io.IOException;
 
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
 
 final class JacksonRequestBodyConverter<T> implements Converter<T, RequestBody> {
     private static final MediaType MEDIA_TYPE = MediaType.parse("application/json; charset=UTF-8");
@@ -19,7 +21,36 @@ final class JacksonRequestBodyConverter<T> implements Converter<T, RequestBody>
 
     @Override
     public RequestBody convert(T value) throws IOException {
-        byte[] bytes = adapter.writeValueAsBytes(value);
-        return RequestBody.create(MEDIA_TYPE, bytes);
+        // Jackson's UTF-8 generator writes straight into the buffer's segments.
+        Buffer buffer = new Buffer();
+        adapter.writeValue(buffer.outputStream(), value);
+        return new BufferRequestBody(buffer);
+    }
+
+    /**
+     * Hands the segments of the encoded body to the sink without copying them, so the body can
+     * be written again when the request is retried.
+     */
+    private static final class BufferRequestBody extends RequestBody {
+        private final Buffer buffer;
+
+        BufferRequestBody(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.write(buffer.clone(), buffer.size());
+        }
     }
 }
@@ -4,10 +4,14 @@ import com.android.supervolley.Converter;
 import com.fasterxml.jackson.databind.ObjectReader;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
 
 final class JacksonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private final ObjectReader adapter;
 
     JacksonResponseBodyConverter(ObjectReader adapter) {
@@ -17,9 +21,22 @@ final class JacksonResponseBodyConverter<T> implements Converter<ResponseBody, T
     @Override
     public T convert(ResponseBody value) throws IOException {
         try {
-            return adapter.readValue(value.charStream());
+            return isUtf8(value)
+                    ? adapter.<T>readValue(value.byteStream())
+                    : adapter.<T>readValue(value.charStream());
         } finally {
             value.close();
         }
     }
+
+    /**
+     * Returns true if {@code body} can be handed to Jackson's byte parser, which detects UTF-8
+     * and the other Unicode encodings JSON allows by itself. Bodies declared with any other
+     * charset are decoded by OkHttp first.
+     */
+    static boolean isUtf8(ResponseBody body) {
+        MediaType contentType = body.contentType();
+        Charset charset = contentType != null ? contentType.charset() : null;
+        return charset == null || UTF_8.equals(charset);
+    }
 }
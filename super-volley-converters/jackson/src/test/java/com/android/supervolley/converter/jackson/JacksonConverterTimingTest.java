@@ -0,0 +1,161 @@
+package com.android.supervolley.converter.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the converters with the paths they replaced: responses read through
+ * {@link ResponseBody#charStream()} and request bodies encoded with
+ * {@link ObjectWriter#writeValueAsBytes(Object)}. Both paths must produce the same values.
+ * <p>
+ * Timing them is opt-in, since it only means something on a warmed-up JVM: run the tests with
+ * {@code -Psupervolley.timing.rounds=2000} to print the median time of each path.
+ */
+public final class JacksonConverterTimingTest {
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final MediaType JSON_UTF_8 =
+            MediaType.parse("application/json; charset=UTF-8");
+    private static final int ROUNDS = Integer.getInteger("supervolley.timing.rounds", 0);
+
+    public static final class Item {
+        public long id;
+        public String name;
+        public double score;
+        public boolean active;
+        public List<String> tags;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader reader = mapper.readerFor(
+            TypeFactory.defaultInstance().constructCollectionType(List.class, Item.class));
+    private final ObjectWriter writer = mapper.writerFor(
+            TypeFactory.defaultInstance().constructCollectionType(List.class, Item.class));
+    private final List<Item> items = items(500);
+
+    @Test
+    public void readsSameValuesAsCharStream() throws IOException {
+        byte[] json = writer.writeValueAsBytes(items);
+        List<Item> charStream = reader.readValue(ResponseBody.create(JSON, json).charStream());
+        List<Item> converted = new JacksonResponseBodyConverter<List<Item>>(reader)
+                .convert(ResponseBody.create(JSON, json));
+        assertArrayEquals(writer.writeValueAsBytes(charStream),
+                writer.writeValueAsBytes(converted));
+    }
+
+    @Test
+    public void writesSameBytesAsWriteValueAsBytes() throws IOException {
+        RequestBody bytes = RequestBody.create(JSON_UTF_8, writer.writeValueAsBytes(items));
+        RequestBody converted = new JacksonRequestBodyConverter<List<Item>>(writer).convert(items);
+        assertEquals(bytes.contentLength(), converted.contentLength());
+        assertEquals(bytes.contentType(), converted.contentType());
+        assertArrayEquals(written(bytes), written(converted));
+        // Written again on a retry.
+        assertArrayEquals(written(bytes), written(converted));
+    }
+
+    @Test
+    public void timesOldAndNewPaths() throws IOException {
+        assumeTrue("Set supervolley.timing.rounds to time the converters", ROUNDS > 0);
+        final byte[] json = writer.writeValueAsBytes(items);
+        final JacksonResponseBodyConverter<List<Item>> responseConverter =
+                new JacksonResponseBodyConverter<>(reader);
+        final JacksonRequestBodyConverter<List<Item>> requestConverter =
+                new JacksonRequestBodyConverter<>(writer);
+
+        report("read", json.length, time(new Op() {
+            @Override
+            public void run() throws IOException {
+                ResponseBody body = ResponseBody.create(JSON, json);
+                try {
+                    reader.readValue(body.charStream());
+                } finally {
+                    body.close();
+                }
+            }
+        }), time(new Op() {
+            @Override
+            public void run() throws IOException {
+                responseConverter.convert(ResponseBody.create(JSON, json));
+            }
+        }));
+
+        report("write", json.length, time(new Op() {
+            @Override
+            public void run() throws IOException {
+                RequestBody.create(JSON_UTF_8, writer.writeValueAsBytes(items))
+                        .writeTo(new Buffer());
+            }
+        }), time(new Op() {
+            @Override
+            public void run() throws IOException {
+                requestConverter.convert(items).writeTo(new Buffer());
+            }
+        }));
+    }
+
+    private interface Op {
+        void run() throws IOException;
+    }
+
+    /**
+     * Returns the median time of one run of {@code op} in nanoseconds, after as many warm-up runs.
+     */
+    private static long time(Op op) throws IOException {
+        for (int i = 0; i < ROUNDS; i++) {
+            op.run();
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            op.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+
+    private static void report(String what, int bytes, long oldNanos, long newNanos) {
+        System.out.println(String.format(Locale.US,
+                "%s %d bytes: old %.1f us, new %.1f us (%.2fx)", what, bytes,
+                oldNanos / 1000.0, newNanos / 1000.0, (double) oldNanos / newNanos));
+    }
+
+    private static byte[] written(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readByteArray();
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.id = 1000000000L + i;
+            item.name = i % 3 == 0 ? "Zo\u00eb " + i : "\u6771\u4eac user " + i;
+            item.score = i / 7.0;
+            item.active = i % 2 == 0;
+            item.tags = Arrays.asList("tag" + i, "common", "\"quoted\"");
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -5,17 +5,24 @@ import com.android.volley.NetworkResponse;
 import com.android.volley.ParseError;
 import com.android.volley.Response.ErrorListener;
 import com.android.volley.ServerError;
+import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
 import com.android.volley.VolleyLog;
 import com.android.volley.toolbox.HttpHeaderParser;
 import com.android.volley.toolbox.RequestFuture;
 import com.android.volley.toolbox.StringRequest;
 
-import java.io.UnsupportedEncodingException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import okhttp3.Headers;
+import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Okio;
 
 import static com.android.supervolley.InternalHttpHeaderParser.parseIgnoreCacheHeaders;
 import static com.android.volley.Response.error;
@@ -29,18 +36,42 @@ import static com.android.volley.toolbox.HttpHeaderParser.parseCacheHeaders;
  */
 public class BaseRequest extends StringRequest {
 
+    private static final byte[] EMPTY_BODY = new byte[0];
+
     private String PROTOCOL_CONTENT_TYPE = "application/json; charset=UTF-8";
 
     // request fields
     private RequestBody requestBody;
     private Priority priority = Priority.NORMAL;
     private RequestFuture<HttpResponse.Builder> futureRequest;
-    private Map<String, String> requestHeaders = new HashMap<>();
+    private Headers requestHeaders = new Headers.Builder().build();
+    private HeaderView requestHeaderView;
+    private String host;
+    private String scheduledHost;
+    private DownloadTarget downloadTarget;
+    private DurableOutbox outbox;
+    private long outboxId;
+    private CallEventListener eventListener = CallEventListener.NONE;
+    private CallEvent callEvent;
+    private CallRegistry registry;
+    private String serviceMethod;
+    private long enqueuedAt;
+    private volatile InFlightCall.State callState = InFlightCall.State.QUEUED;
+    private volatile int attempts;
+    private final AtomicBoolean stalled = new AtomicBoolean();
+    // Claimed by the first of Volley's delivery and the watchdog, so the caller hears only once.
+    private final AtomicBoolean delivered = new AtomicBoolean();
+    private boolean dequeued; // Only accessed by the dispatcher holding this request.
+    private volatile okhttp3.Call httpCall;
 
     // response fields
     private int statusCode;
+    private long networkTimeMs;
     private ResponseListener listener;
     private Map<String, String> responseHeaders = new HashMap<>();
+    // The successful response being delivered, whose body is converted from its bytes.
+    private NetworkResponse bodyResponse;
+    private Charset bodyCharset;
 
     BaseRequest(int method, final String url) {
         super(method, url, null, null);
@@ -63,11 +94,19 @@ public class BaseRequest extends StringRequest {
         if (key.equalsIgnoreCase("Content-Type")) {
             PROTOCOL_CONTENT_TYPE = value;
         }
-        this.requestHeaders.put(key, value);
+        setHeaders(requestHeaders.newBuilder().set(key, value).build());
+    }
+
+    void setHeaders(Headers headers) {
+        this.requestHeaders = headers;
+        this.requestHeaderView = null;
     }
 
-    void addHeaders(Map<String, String> map) {
-        this.requestHeaders.putAll(map);
+    /**
+     * The request headers, including repeated ones.
+     */
+    Headers getRequestHeaders() {
+        return requestHeaders;
     }
 
     @Override
@@ -82,17 +121,228 @@ public class BaseRequest extends StringRequest {
         this.priority = priority;
     }
 
+    /**
+     * The host this request is sent to, used to group requests in the {@link RequestScheduler}.
+     */
+    String getHost() {
+        if (host == null) {
+            okhttp3.HttpUrl url = okhttp3.HttpUrl.parse(getUrl());
+            host = url != null ? url.host() : "";
+        }
+        return host;
+    }
+
+    void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * The host whose {@link RequestScheduler} slot this request holds, or null if it was added to
+     * the queue directly.
+     */
+    String getScheduledHost() {
+        return scheduledHost;
+    }
+
+    void setScheduledHost(String scheduledHost) {
+        this.scheduledHost = scheduledHost;
+    }
+
+    /**
+     * The file a {@link com.android.supervolley.annotation.Destination @Destination} call writes
+     * its response body to, or null.
+     */
+    DownloadTarget getDownloadTarget() {
+        return downloadTarget;
+    }
+
+    void setDownloadTarget(DownloadTarget downloadTarget) {
+        this.downloadTarget = downloadTarget;
+    }
+
+    /**
+     * Links this request to the {@link DurableOutbox} entry it was persisted as, so that its
+     * outcome can acknowledge the entry or schedule a replay.
+     */
+    void setOutboxEntry(DurableOutbox outbox, long outboxId) {
+        this.outbox = outbox;
+        this.outboxId = outboxId;
+    }
+
+    /**
+     * Reports the lifecycle of this request to {@code eventListener}.
+     */
+    void setCallEvent(CallEventListener eventListener, CallEvent callEvent) {
+        this.eventListener = eventListener;
+        this.callEvent = callEvent;
+    }
+
+    /**
+     * The listener events of this request are reported to; {@link CallEventListener#NONE} unless
+     * one was set.
+     */
+    CallEventListener getEventListener() {
+        return eventListener;
+    }
+
+    /**
+     * The call events of this request are reported for, or null if there is no listener.
+     */
+    CallEvent getCallEvent() {
+        return callEvent;
+    }
+
+    /**
+     * Reports that the converted outcome of this request reached its callback or caller.
+     */
+    void delivered(int statusCode, boolean success) {
+        if (callEvent != null) {
+            eventListener.delivered(callEvent, statusCode, success);
+        }
+    }
+
+    /**
+     * Tracks this request in {@code registry} until its outcome is delivered.
+     */
+    void setRegistry(CallRegistry registry, String serviceMethod, long enqueuedAt) {
+        this.serviceMethod = serviceMethod;
+        this.enqueuedAt = enqueuedAt;
+        this.registry = registry;
+    }
+
+    String getServiceMethod() {
+        return serviceMethod;
+    }
+
+    long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    InFlightCall.State getCallState() {
+        return callState;
+    }
+
+    void setCallState(InFlightCall.State callState) {
+        this.callState = callState;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Records the start of a network attempt over {@code httpCall}, which {@link #cancel()}
+     * cancels.
+     */
+    void attemptStarted(okhttp3.Call httpCall) {
+        this.httpCall = httpCall;
+        this.callState = InFlightCall.State.NETWORK;
+        attempts++; // Attempts are sequential.
+    }
+
+    /**
+     * Cancels the HTTP call of the current attempt, if any, which fails the attempt without
+     * canceling this request. Returns false if there was no call to cancel.
+     */
+    boolean abortHttpCall() {
+        okhttp3.Call call = httpCall;
+        if (call == null || call.isCanceled()) {
+            return false;
+        }
+        call.cancel();
+        return true;
+    }
+
+    /**
+     * Returns true the first time a dispatcher takes this request from the queue, so its time in
+     * queue is recorded once.
+     */
+    boolean markDequeued() {
+        if (dequeued) {
+            return false;
+        }
+        dequeued = true;
+        return true;
+    }
+
+    /**
+     * Returns true the first time it is called, so a stalled request is reported once.
+     */
+    boolean markStalled() {
+        return stalled.compareAndSet(false, true);
+    }
+
+    long getNetworkTimeMs() {
+        return networkTimeMs;
+    }
+
     int getStatusCode() {
         return statusCode;
     }
 
+    /**
+     * Records the status and headers of a response that was received outside of Volley.
+     */
+    void setNetworkResult(int statusCode, Map<String, String> responseHeaders) {
+        this.statusCode = statusCode;
+        this.responseHeaders = responseHeaders;
+    }
+
     @Override
     public Map<String, String> getHeaders() {
-        return this.requestHeaders;
+        if (requestHeaderView == null) {
+            requestHeaderView = new HeaderView(requestHeaders);
+        }
+        return requestHeaderView;
+    }
+
+    @Override
+    public void addMarker(String tag) {
+        super.addMarker(tag);
+        if (registry != null) {
+            registry.telemetry.onMarker(this, tag);
+        }
+        switch (tag) {
+            case "cache-queue-take":
+                callState = InFlightCall.State.CACHE;
+                break;
+            case "cache-miss":
+            case "cache-hit-expired":
+                callState = InFlightCall.State.QUEUED;
+                break;
+            case "network-queue-take":
+                callState = InFlightCall.State.NETWORK;
+                break;
+            case "network-http-complete":
+            case "cache-hit":
+                callState = InFlightCall.State.CONVERTING;
+                break;
+            case "post-response":
+            case "post-error":
+                callState = InFlightCall.State.DELIVERING;
+                break;
+        }
+        if (callEvent != null && tag.startsWith("cache-")) {
+            if (tag.equals("cache-miss") || tag.equals("cache-hit-expired")) {
+                eventListener.cacheLookup(callEvent, false);
+            } else if (tag.equals("cache-hit")) {
+                eventListener.cacheLookup(callEvent, true);
+            }
+        }
     }
 
     @Override
     protected void deliverResponse(String response) {
+        if (!delivered.compareAndSet(false, true)) {
+            releaseResponseBody(null);
+            return; // Already failed by the watchdog.
+        }
+        if (registry != null) {
+            registry.unregister(this);
+        }
+        if (outbox != null) {
+            outbox.finished(outboxId, statusCode);
+        }
         if (futureRequest != null) {
             futureRequest.onResponse(new HttpResponse.Builder()
                     .raw(response).request(this));
@@ -103,6 +353,31 @@ public class BaseRequest extends StringRequest {
 
     @Override
     public void deliverError(VolleyError error) {
+        if (delivered.compareAndSet(false, true)) {
+            fail(error);
+        }
+    }
+
+    /**
+     * Cancels this request and fails it with a {@link TimeoutError}. Volley delivers nothing for
+     * a canceled request, so without the error its caller would never learn the outcome.
+     */
+    void deliverTimeout() {
+        if (!delivered.compareAndSet(false, true)) {
+            return; // Volley is already delivering the outcome.
+        }
+        cancel();
+        fail(new TimeoutError());
+    }
+
+    private void fail(VolleyError error) {
+        if (registry != null) {
+            registry.unregister(this);
+        }
+        if (outbox != null) {
+            outbox.finished(outboxId, error.networkResponse != null
+                    ? error.networkResponse.statusCode : 0);
+        }
         if (futureRequest != null) {
             futureRequest.onErrorResponse(error);
             return;
@@ -110,6 +385,34 @@ public class BaseRequest extends StringRequest {
         this.listener.onErrorResponse(error);
     }
 
+    /**
+     * Parses and delivers a response that was received on behalf of this request, e.g. as part of
+     * a batch, through the same path as a response from the network.
+     */
+    void deliverNetworkResponse(NetworkResponse response) {
+        callState = InFlightCall.State.CONVERTING;
+        com.android.volley.Response<String> parsed = parseNetworkResponse(response);
+        if (parsed.isSuccess()) {
+            deliverResponse(parsed.result);
+        } else {
+            deliverError(parsed.error);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        if (registry != null) {
+            registry.unregister(this);
+        }
+        // Volley can't interrupt a request blocked on its socket, but OkHttp can.
+        abortHttpCall();
+        if (outbox != null) {
+            // Volley delivers nothing for a canceled request; leave the entry to the replay.
+            outbox.finished(outboxId, 0);
+        }
+    }
+
     @Override
     public boolean isCanceled() {
         if (futureRequest != null) {
@@ -122,27 +425,82 @@ public class BaseRequest extends StringRequest {
     protected com.android.volley.Response<String> parseNetworkResponse(NetworkResponse response) {
         this.statusCode = response.statusCode;
         this.responseHeaders = response.headers;
-        /* Get the response data */
+        this.networkTimeMs = response.networkTimeMs;
+        Charset charset;
         try {
-            String json = "";
-            if (response.data != null) {
-                json = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
-            }
+            charset = Charset.forName(HttpHeaderParser.parseCharset(response.headers));
+        } catch (IllegalArgumentException e) {
+            return error(new ParseError(e));
+        }
+        if (VolleyLog.DEBUG) {
             String log = "%1$s\nResponse code: %2$s\nResponse body: %3$s";
-            VolleyLog.v(log, getUrl(), statusCode, json);
-            if (statusCode >= 200 && statusCode < 300) {
-                /* Return the parsed result in a response wrapper */
-                return shouldCache() ?
-                        success(json, parseIgnoreCacheHeaders(response)) :
-                        success(json, parseCacheHeaders(response));
-            } else {
-                return error(new ServerError(response));
+            VolleyLog.v(log, getUrl(), statusCode,
+                    new String(bodyData(response), 0, bodyLength(response), charset));
+        }
+        if (statusCode >= 200 && statusCode < 300) {
+            // The body is converted from its bytes, and only decoded to a String on demand.
+            this.bodyResponse = response;
+            this.bodyCharset = charset;
+            return shouldCache() ?
+                    success((String) null, parseIgnoreCacheHeaders(response)) :
+                    success((String) null, parseCacheHeaders(response));
+        } else {
+            return error(new ServerError(response));
+        }
+    }
+
+    /**
+     * The body of the successful response being delivered, read straight from the bytes it was
+     * received in, or an empty body. Call {@link #releaseResponseBody} once it has been converted.
+     */
+    ResponseBody responseBody() {
+        NetworkResponse response = bodyResponse;
+        if (response == null) {
+            return ResponseBody.create(null, EMPTY_BODY);
+        }
+        String contentType = response.headers != null ? response.headers.get("Content-Type") : null;
+        int length = bodyLength(response);
+        return ResponseBody.create(contentType != null ? MediaType.parse(contentType) : null,
+                length, Okio.buffer(Okio.source(
+                        new ByteArrayInputStream(bodyData(response), 0, length))));
+    }
+
+    /**
+     * Sets the raw body of {@code builder} to the body of the successful response being
+     * delivered, without decoding it.
+     */
+    HttpResponse.Builder rawBody(HttpResponse.Builder builder) {
+        NetworkResponse response = bodyResponse;
+        if (response != null) {
+            builder.raw(bodyData(response), bodyLength(response), bodyCharset);
+        }
+        return builder;
+    }
+
+    /**
+     * Returns a pooled response buffer to its pool once the body has been converted. The raw body
+     * of {@code retained}, the response kept by the caller, is copied out of the buffer first.
+     */
+    void releaseResponseBody(HttpResponse retained) {
+        NetworkResponse response = bodyResponse;
+        bodyResponse = null;
+        if (response instanceof PooledNetworkResponse) {
+            if (retained != null) {
+                retained.detachRaw(response.data);
             }
-        } catch (UnsupportedEncodingException e) {
-            return error(new ParseError(e));
+            ((PooledNetworkResponse) response).release();
         }
     }
 
+    private static byte[] bodyData(NetworkResponse response) {
+        return response.data != null ? response.data : EMPTY_BODY;
+    }
+
+    private static int bodyLength(NetworkResponse response) {
+        return response instanceof PooledNetworkResponse
+                ? ((PooledNetworkResponse) response).length : bodyData(response).length;
+    }
+
     void addBody(RequestBody body) {
         this.requestBody = body;
     }
@@ -22,13 +22,13 @@ import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
-
-import okhttp3.Headers;
+import java.util.TreeMap;
 
 /**
  * A network performing Volley requests over an {@link OkHttpStack}.
@@ -38,6 +38,8 @@ class BasicNetwork implements Network {
     private static final boolean DEBUG;
     private static int SLOW_REQUEST_THRESHOLD_MS;
     private final OkHttpStack mHttpStack;
+    private final ResponseBufferPool mBufferPool;
+    private final Telemetry mTelemetry;
 
     /**
      * Date format pattern used to parse HTTP date headers in RFC 1123 format.
@@ -49,17 +51,34 @@ class BasicNetwork implements Network {
         SLOW_REQUEST_THRESHOLD_MS = 3000;
     }
 
-    BasicNetwork(OkHttpStack httpStack) {
+    BasicNetwork(OkHttpStack httpStack, ResponseBufferPool bufferPool, Telemetry telemetry) {
         this.mHttpStack = httpStack;
+        this.mBufferPool = bufferPool;
+        this.mTelemetry = telemetry;
     }
 
     public NetworkResponse performRequest(Request<?> request) throws VolleyError {
+        mTelemetry.networkStarted();
+        try {
+            return performRequestInternal(request);
+        } finally {
+            mTelemetry.networkFinished();
+        }
+    }
+
+    private NetworkResponse performRequestInternal(Request<?> request) throws VolleyError {
         long requestStart = SystemClock.elapsedRealtime();
+        BaseRequest baseRequest = request instanceof BaseRequest ? (BaseRequest) request : null;
+        CallEvent callEvent = baseRequest != null ? baseRequest.getCallEvent() : null;
 
         while (true) {
             okhttp3.Response okHttpResponse = null;
             byte[] responseContents = null;
-            Map<String, String> responseHeaders = new HashMap<>();
+            Map<String, String> responseHeaders = Collections.emptyMap();
+            long attemptStart = SystemClock.elapsedRealtime();
+            if (callEvent != null) {
+                baseRequest.getEventListener().networkStart(callEvent);
+            }
 
             try {
                 // Gather headers.
@@ -68,10 +87,13 @@ class BasicNetwork implements Network {
                 okHttpResponse = this.mHttpStack.performRequest(request, headers);
 
                 int statusCode = okHttpResponse.code();
-                responseHeaders = convertHeaders(okHttpResponse.headers());
+                responseHeaders = new HeaderView(okHttpResponse.headers());
 
                 // Handle cache validation.
                 if (statusCode == 304) { // NOT MODIFIED
+                    if (callEvent != null) {
+                        networkEnd(baseRequest, 304, 0, attemptStart);
+                    }
                     Cache.Entry entry = request.getCacheEntry();
                     if (entry == null) {
                         return new NetworkResponse(304, null,
@@ -82,11 +104,28 @@ class BasicNetwork implements Network {
                     // have to use the header fields from the cache entry plus
                     // the new ones from the response.
                     // http://www.w3.org/Protocols/rfc2616/rfc2616-sec10.html#sec10.3.5
-                    entry.responseHeaders.putAll(responseHeaders);
-                    return new NetworkResponse(304, entry.data, responseHeaders,
+                    Map<String, String> mergedHeaders =
+                            new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                    mergedHeaders.putAll(entry.responseHeaders);
+                    mergedHeaders.putAll(responseHeaders);
+                    return new NetworkResponse(304, entry.data, mergedHeaders,
                             true, SystemClock.elapsedRealtime() - requestStart);
                 }
 
+                if (statusCode >= 200 && statusCode <= 299 && okHttpResponse.body() != null
+                        && mBufferPool != null && !request.shouldCache()) {
+                    // The body is converted from the buffer and then released, and never cached.
+                    PooledNetworkResponse pooled = PooledNetworkResponse.read(mBufferPool,
+                            statusCode, responseHeaders, okHttpResponse.body(), requestStart);
+                    if (pooled != null) {
+                        if (callEvent != null) {
+                            networkEnd(baseRequest, statusCode, pooled.length, attemptStart);
+                        }
+                        this.logSlowRequests(pooled.networkTimeMs, request, pooled.length, statusCode);
+                        return pooled;
+                    }
+                }
+
                 // Some responses such as 204s do not have content.  We must check.
                 if (okHttpResponse.body() != null) {
                     responseContents = okHttpResponse.body().bytes();
@@ -95,9 +134,13 @@ class BasicNetwork implements Network {
                     responseContents = new byte[0];
                 }
 
+                if (callEvent != null) {
+                    networkEnd(baseRequest, statusCode, responseContents.length, attemptStart);
+                }
+
                 // if the request is slow, log it.
                 long requestLifetime = SystemClock.elapsedRealtime() - requestStart;
-                this.logSlowRequests(requestLifetime, request, responseContents, statusCode);
+                this.logSlowRequests(requestLifetime, request, responseContents.length, statusCode);
 
                 if (statusCode < 200 || statusCode > 299) {
                     throw new IOException();
@@ -106,14 +149,17 @@ class BasicNetwork implements Network {
                 return new NetworkResponse(statusCode, responseContents, responseHeaders,
                         false, SystemClock.elapsedRealtime() - requestStart);
             } catch (SocketTimeoutException e) {
+                networkFailed(callEvent, baseRequest, e, attemptStart);
                 attemptRetryOnException("socket", request, new TimeoutError());
             } catch (ConnectTimeoutException e) {
+                networkFailed(callEvent, baseRequest, e, attemptStart);
                 attemptRetryOnException("connection", request, new TimeoutError());
             } catch (MalformedURLException e) {
                 throw new RuntimeException("Bad URL " + request.getUrl(), e);
             } catch (IOException e) {
                 NetworkResponse networkResponse;
                 if (okHttpResponse == null) {
+                    networkFailed(callEvent, baseRequest, e, attemptStart);
                     throw new NoConnectionError(e);
                 }
                 int statusCode = okHttpResponse.code();
@@ -138,10 +184,38 @@ class BasicNetwork implements Network {
         }
     }
 
-    private void logSlowRequests(long requestLifetime, Request<?> request, byte[] responseContents, int status) {
+    /**
+     * Reports a response to the {@link CallEventListener} of {@code request}, which must have a
+     * {@link CallEvent}.
+     */
+    static void networkEnd(BaseRequest request, int statusCode, long responseBytes,
+                                   long attemptStart) {
+        long requestBytes = -1;
+        okhttp3.RequestBody body = request.getRequestBody();
+        if (body == null) {
+            requestBytes = 0;
+        } else {
+            try {
+                requestBytes = body.contentLength();
+            } catch (IOException ignored) {
+            }
+        }
+        request.getEventListener().networkEnd(request.getCallEvent(), statusCode, requestBytes,
+                responseBytes, SystemClock.elapsedRealtime() - attemptStart);
+    }
+
+    static void networkFailed(CallEvent callEvent, BaseRequest request, Exception failure,
+                                      long attemptStart) {
+        if (callEvent != null) {
+            request.getEventListener().networkFailed(callEvent, failure,
+                    SystemClock.elapsedRealtime() - attemptStart);
+        }
+    }
+
+    private void logSlowRequests(long requestLifetime, Request<?> request, int responseLength, int status) {
         if (DEBUG && requestLifetime > (long) SLOW_REQUEST_THRESHOLD_MS) {
             VolleyLog.d("HTTP response for request=<%s> [lifetime=%d], [size=%s], [rc=%d], [retryCount=%s]",
-                    request, requestLifetime, responseContents != null ? Integer.valueOf(responseContents.length) : "null",
+                    request, requestLifetime, responseLength,
                     status, request.getRetryPolicy().getCurrentRetryCount());
         }
     }
@@ -158,6 +232,13 @@ class BasicNetwork implements Network {
         }
 
         request.addMarker(String.format("%s-retry [timeout=%s]", logPrefix, oldTimeout));
+        if (request instanceof BaseRequest) {
+            BaseRequest baseRequest = (BaseRequest) request;
+            if (baseRequest.getCallEvent() != null) {
+                baseRequest.getEventListener().retry(baseRequest.getCallEvent(), logPrefix,
+                        retryPolicy.getCurrentRetryCount());
+            }
+        }
     }
 
     private void addCacheHeaders(Map<String, String> headers, Cache.Entry entry) {
@@ -182,16 +263,6 @@ class BasicNetwork implements Network {
         return formatter.format(date);
     }
 
-    private static Map<String, String> convertHeaders(Headers headers) {
-        HashMap<String, String> result = new HashMap<>();
-
-        for (int i = 0; i < headers.size(); ++i) {
-            result.put(headers.name(i), headers.value(i));
-        }
-
-        return result;
-    }
-
     /**
      * A factory for {@link SimpleDateFormat}s. The instances are stored in a
      * threadlocal way because SimpleDateFormat is not threadsafe as noted in
@@ -0,0 +1,89 @@
+package com.android.supervolley;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+
+/**
+ * Encodes {@link com.android.supervolley.annotation.Batchable batchable} calls into the body of a
+ * single request to the server's batch endpoint, and splits the batch response back into one
+ * response per call.
+ */
+public interface BatchCodec {
+    /**
+     * Returns the body of the batch request for {@code parts}.
+     */
+    RequestBody encode(List<Part> parts) throws IOException;
+
+    /**
+     * Returns one result per encoded part, in the order the parts were encoded.
+     */
+    List<Result> decode(ResponseBody body) throws IOException;
+
+    /**
+     * A single call inside a batch request.
+     */
+    final class Part {
+        private final String method;
+        private final String url;
+        private final Map<String, String> headers;
+        private final RequestBody body;
+
+        Part(String method, String url, Map<String, String> headers, RequestBody body) {
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String method() {
+            return method;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public Map<String, String> headers() {
+            return headers;
+        }
+
+        /**
+         * The request body, or null if the call has none.
+         */
+        public RequestBody body() {
+            return body;
+        }
+    }
+
+    /**
+     * The response to a single call inside a batch response.
+     */
+    final class Result {
+        private final int code;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        public Result(int code, Map<String, String> headers, byte[] body) {
+            if (headers == null) throw new NullPointerException("headers == null");
+            this.code = code;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        public Map<String, String> headers() {
+            return headers;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.android.supervolley;
+
+/**
+ * Receives the results of {@link SuperVolley#enqueueAll} as the calls complete. Methods are invoked
+ * on the thread that delivered the individual call's {@link Callback}.
+ *
+ * @param <T> Successful response body type.
+ */
+public interface BulkCallback<T> {
+    /**
+     * Invoked for a received HTTP response of the call at {@code index}.
+     */
+    void onResponse(int index, Call<T> call, Response<T> response);
+
+    /**
+     * Invoked when the call at {@code index} couldn't talk to the server or its response couldn't
+     * be processed.
+     */
+    void onFailure(int index, Call<T> call, Throwable t);
+
+    /**
+     * Invoked once after the last result, or after the first failure when using
+     * {@link BulkPolicy#FAIL_FAST}. {@code failure} is null if every call succeeded or the policy is
+     * {@link BulkPolicy#COLLECT}.
+     */
+    void onComplete(Throwable failure);
+}
@@ -0,0 +1,18 @@
+package com.android.supervolley;
+
+/**
+ * How {@link SuperVolley#executeAll} and {@link SuperVolley#enqueueAll} react to a failed call. A
+ * call fails when it can't talk to the server or when its response isn't
+ * {@linkplain Response#isSuccessful() successful}.
+ */
+public enum BulkPolicy {
+    /**
+     * Stop at the first failure: calls that have not started are skipped and calls in flight are
+     * {@linkplain Call#cancel() canceled}.
+     */
+    FAIL_FAST,
+    /**
+     * Run every call and report each failure alongside the successful responses.
+     */
+    COLLECT
+}
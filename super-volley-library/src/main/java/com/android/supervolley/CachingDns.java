@@ -0,0 +1,274 @@
+package com.android.supervolley;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+/**
+ * A {@link Dns} which caches the addresses of a delegate resolver in memory.
+ * <p>
+ * A cached lookup is answered immediately. Once a record has been cached for
+ * {@linkplain Builder#refreshAhead(double) most of its time to live}, the next lookup triggers a
+ * refresh in the background, so busy hosts never wait for the resolver. If the resolver fails,
+ * records that expired less than {@linkplain Builder#maxStale(long, TimeUnit) maxStale} ago are
+ * served instead.
+ * <p>
+ * OkHttp tries the addresses of a host in order. With
+ * {@linkplain Builder#interleaveAddressFamilies(boolean) interleaving} IPv6 and IPv4 addresses
+ * alternate, as RFC 8305 recommends, so a broken address family costs one connect timeout rather
+ * than one per address.
+ * <pre><code>
+ * SuperVolley volley = new SuperVolley.Builder()
+ *     .baseUrl("https://api.example.com/")
+ *     .dns(new CachingDns.Builder().ttl(5, TimeUnit.MINUTES).build())
+ *     .build();
+ * </code></pre>
+ */
+public final class CachingDns implements Dns {
+    private final Dns delegate;
+    private final long ttlNanos;
+    private final long refreshNanos;
+    private final long maxStaleNanos;
+    private final boolean interleave;
+    private final Executor refreshExecutor;
+    private final Map<String, Record> records;
+
+    CachingDns(Builder builder) {
+        this.delegate = builder.delegate;
+        this.ttlNanos = builder.ttlNanos;
+        this.refreshNanos = (long) (builder.ttlNanos * builder.refreshAhead);
+        this.maxStaleNanos = builder.maxStaleNanos;
+        this.interleave = builder.interleave;
+        this.refreshExecutor = builder.refreshExecutor != null
+                ? builder.refreshExecutor : defaultRefreshExecutor();
+        final int maxEntries = builder.maxEntries;
+        this.records = new LinkedHashMap<String, Record>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Record> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        if (hostname == null) throw new UnknownHostException("hostname == null");
+
+        long now = System.nanoTime();
+        Record record;
+        boolean refresh = false;
+        synchronized (records) {
+            record = records.get(hostname);
+            if (record != null && now - record.resolvedAt < ttlNanos
+                    && now - record.resolvedAt >= refreshNanos && !record.refreshing) {
+                record.refreshing = refresh = true;
+            }
+        }
+        if (record != null && now - record.resolvedAt < ttlNanos) {
+            if (refresh) {
+                refreshInBackground(hostname, record);
+            }
+            return record.addresses;
+        }
+
+        try {
+            return resolve(hostname);
+        } catch (UnknownHostException e) {
+            if (record != null && now - record.resolvedAt < ttlNanos + maxStaleNanos) {
+                return record.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets all cached records, e.g. because the device joined another network.
+     */
+    public void evictAll() {
+        synchronized (records) {
+            records.clear();
+        }
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        List<InetAddress> addresses = delegate.lookup(hostname);
+        if (addresses.isEmpty()) {
+            throw new UnknownHostException(delegate + " returned no addresses for " + hostname);
+        }
+        if (interleave) {
+            addresses = interleave(addresses);
+        }
+        addresses = Collections.unmodifiableList(new ArrayList<>(addresses));
+        synchronized (records) {
+            records.put(hostname, new Record(addresses, System.nanoTime()));
+        }
+        return addresses;
+    }
+
+    private void refreshInBackground(final String hostname, final Record record) {
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        resolve(hostname);
+                    } catch (UnknownHostException | RuntimeException e) {
+                        // Keep serving the current record; the next lookup after it expires will
+                        // try again and fall back to it if needed.
+                        synchronized (records) {
+                            record.refreshing = false;
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (records) {
+                record.refreshing = false;
+            }
+        }
+    }
+
+    /**
+     * Alternates the address families of {@code addresses}, starting with the family of the first
+     * address and keeping the resolver's order within each family.
+     */
+    static List<InetAddress> interleave(List<InetAddress> addresses) {
+        List<InetAddress> ipv6 = new ArrayList<>();
+        List<InetAddress> ipv4 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? ipv6 : ipv4).add(address);
+        }
+        if (ipv6.isEmpty() || ipv4.isEmpty()) {
+            return addresses;
+        }
+        List<InetAddress> first = addresses.get(0) instanceof Inet6Address ? ipv6 : ipv4;
+        List<InetAddress> second = first == ipv6 ? ipv4 : ipv6;
+        List<InetAddress> result = new ArrayList<>(addresses.size());
+        for (int i = 0, size = Math.max(first.size(), second.size()); i < size; i++) {
+            if (i < first.size()) result.add(first.get(i));
+            if (i < second.size()) result.add(second.get(i));
+        }
+        return result;
+    }
+
+    private static Executor defaultRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SuperVolley DNS Refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class Record {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+        boolean refreshing; // Guarded by records.
+
+        Record(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    /**
+     * Build a new {@link CachingDns}.
+     */
+    public static final class Builder {
+        private Dns delegate = Dns.SYSTEM;
+        private long ttlNanos = TimeUnit.MINUTES.toNanos(1);
+        private double refreshAhead = 0.75;
+        private long maxStaleNanos = TimeUnit.HOURS.toNanos(1);
+        private int maxEntries = 128;
+        private boolean interleave;
+        private Executor refreshExecutor;
+
+        /**
+         * The resolver to cache; {@link Dns#SYSTEM} by default.
+         */
+        public Builder delegate(Dns delegate) {
+            this.delegate = Utils.checkNotNull(delegate, "delegate == null");
+            return this;
+        }
+
+        /**
+         * How long resolved addresses are used; one minute by default. The system resolver
+         * doesn't report record TTLs, so pick a value no longer than the TTLs of your hosts.
+         */
+        public Builder ttl(long duration, TimeUnit unit) {
+            if (duration <= 0) throw new IllegalArgumentException("duration <= 0");
+            this.ttlNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * The fraction of the TTL after which a lookup refreshes the record in the background;
+         * 0.75 by default. Use 1 to disable refreshing ahead of expiry.
+         */
+        public Builder refreshAhead(double fraction) {
+            if (fraction <= 0 || fraction > 1) {
+                throw new IllegalArgumentException("fraction must be in (0, 1]");
+            }
+            this.refreshAhead = fraction;
+            return this;
+        }
+
+        /**
+         * How long after expiry a record is still served when the resolver fails; one hour by
+         * default. Use 0 to never serve stale records.
+         */
+        public Builder maxStale(long duration, TimeUnit unit) {
+            if (duration < 0) throw new IllegalArgumentException("duration < 0");
+            this.maxStaleNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * The number of hosts to remember; 128 by default. The least recently used host is
+         * evicted first.
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 1) throw new IllegalArgumentException("maxEntries < 1");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Alternates IPv6 and IPv4 addresses so that connection attempts switch family after
+         * each failure. Disabled by default.
+         */
+        public Builder interleaveAddressFamilies(boolean interleave) {
+            this.interleave = interleave;
+            return this;
+        }
+
+        /**
+         * The executor which runs background refreshes; a single daemon thread by default.
+         */
+        public Builder refreshExecutor(Executor executor) {
+            this.refreshExecutor = Utils.checkNotNull(executor, "executor == null");
+            return this;
+        }
+
+        public CachingDns build() {
+            return new CachingDns(this);
+        }
+    }
+}
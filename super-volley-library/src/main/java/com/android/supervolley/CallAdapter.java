@@ -66,5 +66,14 @@ public interface CallAdapter<R, T> {
         protected static Class<?> getRawType(Type type) {
             return Utils.getRawType(type);
         }
+
+        /**
+         * Returns a type representing {@code rawType} parameterized by {@code typeArguments}. For
+         * example, {@code ElementStream.class} and {@code User.class} return
+         * {@code ElementStream<User>}.
+         */
+        protected static ParameterizedType newParameterizedType(Class<?> rawType, Type... typeArguments) {
+            return Utils.newParameterizedType(rawType, typeArguments);
+        }
     }
 }
@@ -0,0 +1,52 @@
+package com.android.supervolley;
+
+/**
+ * Identifies the call a {@link CallEventListener} event belongs to.
+ */
+public final class CallEvent {
+    private final String serviceMethod;
+    private final String httpMethod;
+    private final String urlTemplate;
+    private final String url;
+
+    CallEvent(String serviceMethod, String httpMethod, String urlTemplate, String url) {
+        this.serviceMethod = serviceMethod;
+        this.httpMethod = httpMethod;
+        this.urlTemplate = urlTemplate;
+        this.url = url;
+    }
+
+    /**
+     * The interface method, as {@code Service.method}.
+     */
+    public String serviceMethod() {
+        return serviceMethod;
+    }
+
+    /**
+     * The HTTP method, e.g. {@code GET}.
+     */
+    public String httpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * The relative URL of the method annotation, before parameters are substituted, or null if
+     * the URL is an {@link com.android.supervolley.annotation.Url @Url} parameter.
+     */
+    public String urlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * The URL the call is sent to.
+     */
+    public String url() {
+        return url;
+    }
+
+    @Override
+    public String toString() {
+        return serviceMethod + " (" + httpMethod + ' ' + url + ')';
+    }
+}
@@ -0,0 +1,91 @@
+package com.android.supervolley;
+
+/**
+ * Listens to the lifecycle of calls made through {@link SuperVolley}: enqueue, cache lookup,
+ * network execution, retries, conversion and delivery.
+ * <p>
+ * Events are reported on the thread doing the work, so implementations must be thread safe and
+ * fast; a listener typically records timings or forwards events to a tracing system. On a JVM a
+ * listener can emit JDK Flight Recorder events, to see client latency alongside GC pauses and
+ * socket I/O in one recording. When no listener is set nothing is allocated or timed.
+ * <pre><code>
+ * SuperVolley volley = new SuperVolley.Builder()
+ *     .baseUrl("https://api.example.com/")
+ *     .eventListener(new CallEventListener() {
+ *         &#64;Override
+ *         public void networkEnd(CallEvent call, int statusCode, long requestBytes,
+ *                                long responseBytes, long tookMs) {
+ *             Log.d("Network", call.serviceMethod() + " took " + tookMs + "ms");
+ *         }
+ *     })
+ *     .build();
+ * </code></pre>
+ */
+public abstract class CallEventListener {
+    /**
+     * A listener which ignores every event.
+     */
+    public static final CallEventListener NONE = new CallEventListener() {
+    };
+
+    /**
+     * The call was handed to the queue, batcher or dispatcher that will send it.
+     */
+    public void callEnqueued(CallEvent call) {
+    }
+
+    /**
+     * The Volley cache was consulted. {@code hit} is false for a miss and for an expired entry.
+     */
+    public void cacheLookup(CallEvent call, boolean hit) {
+    }
+
+    /**
+     * An attempt to send the call over the network is starting.
+     */
+    public void networkStart(CallEvent call) {
+    }
+
+    /**
+     * A network attempt received a response. {@code requestBytes} is -1 if the length of the
+     * request body is unknown.
+     */
+    public void networkEnd(CallEvent call, int statusCode, long requestBytes, long responseBytes,
+                           long tookMs) {
+    }
+
+    /**
+     * A network attempt failed without a response.
+     */
+    public void networkFailed(CallEvent call, Exception failure, long tookMs) {
+    }
+
+    /**
+     * The call is being retried, e.g. after a timeout. {@code attempt} counts the retries so far.
+     */
+    public void retry(CallEvent call, String reason, int attempt) {
+    }
+
+    /**
+     * The response body of {@code bytes} bytes, or -1 if unknown, was converted to the method's
+     * return type.
+     */
+    public void conversionEnd(CallEvent call, long bytes, long tookNanos) {
+    }
+
+    /**
+     * The call has been in flight for longer than the
+     * {@linkplain SuperVolley.Builder#watchdog(long, java.util.concurrent.TimeUnit, boolean)
+     * watchdog} allows.
+     */
+    public void callStalled(CallEvent call, long ageMillis) {
+    }
+
+    /**
+     * The converted outcome of the call was delivered: its callback has returned, or it is about
+     * to be returned to the caller of {@link Call#execute()}. Always follows
+     * {@link #conversionEnd} when the body was converted.
+     */
+    public void delivered(CallEvent call, int statusCode, boolean success) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.android.supervolley;
+
+import android.os.SystemClock;
+
+import com.android.volley.VolleyLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the requests which have been sent and not yet delivered.
+ * <p>
+ * Requests add themselves when they are enqueued and remove themselves when their outcome is
+ * delivered or they are canceled; their state is updated as Volley and the dispatchers move
+ * them along. Both are single operations on a concurrent set, so tracking never blocks a
+ * request.
+ * <p>
+ * With a watchdog, requests older than {@code maxAgeMillis} are reported once, to the log and to
+ * the {@link CallEventListener}. If {@code cancelStalled} is set, a stalled request waiting on
+ * the network has its HTTP call canceled, which fails it with a network error and
+ * frees the thread blocked on its socket; a stalled request in any other state is canceled and
+ * failed with a timeout, so that its caller always learns the outcome.
+ */
+final class CallRegistry {
+    private final Set<BaseRequest> inFlight =
+            Collections.newSetFromMap(new ConcurrentHashMap<BaseRequest, Boolean>());
+    final Telemetry telemetry;
+    private ScheduledExecutorService watchdog;
+
+    CallRegistry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    void register(BaseRequest request, String serviceMethod) {
+        request.setRegistry(this, serviceMethod, SystemClock.elapsedRealtime());
+        inFlight.add(request);
+    }
+
+    void unregister(BaseRequest request) {
+        inFlight.remove(request);
+    }
+
+    List<InFlightCall> snapshot() {
+        long now = SystemClock.elapsedRealtime();
+        List<InFlightCall> calls = new ArrayList<>();
+        for (BaseRequest request : inFlight) {
+            calls.add(new InFlightCall(request.getServiceMethod(), request.getUrl(),
+                    request.getCallState(), now - request.getEnqueuedAt(),
+                    request.getAttempts()));
+        }
+        return calls;
+    }
+
+    /**
+     * Checks for requests older than {@code maxAgeMillis} in the background.
+     */
+    synchronized void startWatchdog(final long maxAgeMillis, final boolean cancelStalled) {
+        if (watchdog != null) {
+            throw new IllegalStateException("Watchdog already started.");
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "SuperVolley Watchdog");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        long period = Math.max(maxAgeMillis / 4, 50);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    check(maxAgeMillis, cancelStalled);
+                } catch (RuntimeException e) {
+                    VolleyLog.e(e, "Watchdog check failed");
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        watchdog = executor;
+    }
+
+    private void check(long maxAgeMillis, boolean cancelStalled) {
+        long now = SystemClock.elapsedRealtime();
+        for (BaseRequest request : inFlight) {
+            long age = now - request.getEnqueuedAt();
+            if (age < maxAgeMillis || !request.markStalled()) {
+                continue;
+            }
+            InFlightCall.State state = request.getCallState();
+            VolleyLog.e("Stalled call %s %s [%s, %dms, %d attempts]", request.getServiceMethod(),
+                    request.getUrl(), state, age, request.getAttempts());
+            CallEvent callEvent = request.getCallEvent();
+            if (callEvent != null) {
+                request.getEventListener().callStalled(callEvent, age);
+            }
+            if (!cancelStalled) {
+                continue;
+            }
+            if (state == InFlightCall.State.NETWORK && request.abortHttpCall()) {
+                continue;
+            }
+            request.deliverTimeout();
+        }
+    }
+}
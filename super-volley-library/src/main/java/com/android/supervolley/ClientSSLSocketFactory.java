@@ -4,49 +4,72 @@ import android.net.SSLCertificateSocketFactory;
 
 import com.android.volley.VolleyLog;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import okio.ByteString;
+
+/**
+ * The TLS configuration of one {@link SuperVolley} instance: its certificate validators, its
+ * SSL context and the client session cache that lets reconnects resume a session instead of
+ * doing a full handshake.
+ */
 class ClientSSLSocketFactory {
 
     private static final String TAG = ClientSSLSocketFactory.class.getSimpleName();
+    private static final int VALIDATED_CHAIN_CACHE_SIZE = 64;
 
-    private static ClientSSLSocketFactory instance;
+    private final boolean isSecured;
+    private final String[] publicKeys;
+    private final int sessionCacheSize;
+    private final int sessionTimeoutSeconds;
+    private final HandshakeStats handshakeStats = new HandshakeStats();
+    private final ValidatedChainCache validatedChains =
+            new ValidatedChainCache(VALIDATED_CHAIN_CACHE_SIZE);
 
     private SSLSocketFactory socketFactory;
     private X509TrustManager trustManager;
     private CertificateValidator[] validators;
-    private boolean isSecured = Boolean.TRUE;
-    private String[] publicKeys;
-
-    private ClientSSLSocketFactory() {
-    }
-
-    static ClientSSLSocketFactory sslSocketFactory() {
-        if (instance == null)
-            instance = new ClientSSLSocketFactory();
-        return instance;
-    }
 
-    void init(boolean isSecured, String[] publicKeys) {
+    ClientSSLSocketFactory(boolean isSecured, String[] publicKeys, int sessionCacheSize,
+                           int sessionTimeoutSeconds) {
         this.isSecured = isSecured;
         this.publicKeys = publicKeys;
+        this.sessionCacheSize = sessionCacheSize;
+        this.sessionTimeoutSeconds = sessionTimeoutSeconds;
     }
 
-    SSLSocketFactory getFactory() {
+    HandshakeStats getHandshakeStats() {
+        return handshakeStats;
+    }
+
+    synchronized SSLSocketFactory getFactory() {
         if (socketFactory == null) {
             try {
                 X509TrustManager manager = get509TrustManager();
                 SSLContext sslContext = SSLContext.getInstance("TLS");
                 sslContext.init(null, new TrustManager[]{manager}, null);
-                socketFactory = sslContext.getSocketFactory();
+                SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+                if (sessionContext != null) {
+                    sessionContext.setSessionCacheSize(sessionCacheSize);
+                    sessionContext.setSessionTimeout(sessionTimeoutSeconds);
+                }
+                socketFactory = new HandshakeCountingSocketFactory(
+                        sslContext.getSocketFactory(), handshakeStats);
             } catch (NoSuchAlgorithmException | KeyManagementException e) {
                 VolleyLog.e(TAG, "Unable to create the ssl socket factory.");
                 return SSLCertificateSocketFactory.getDefault(0, null);
@@ -55,7 +78,7 @@ class ClientSSLSocketFactory {
         return socketFactory;
     }
 
-    X509TrustManager get509TrustManager() {
+    synchronized X509TrustManager get509TrustManager() {
         if (trustManager == null) {
             trustManager = new X509TrustManager() {
 
@@ -65,9 +88,21 @@ class ClientSSLSocketFactory {
 
                 @Override
                 public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-                    for (CertificateValidator validator : getValidators()) {
+                    CertificateValidator[] validators = getValidators();
+                    if (validators.length == 0) {
+                        return;
+                    }
+                    ByteString fingerprint = ValidatedChainCache.fingerprint(chain);
+                    long now = System.currentTimeMillis();
+                    if (fingerprint != null && validatedChains.isValidated(fingerprint, now)) {
+                        return;
+                    }
+                    for (CertificateValidator validator : validators) {
                         validator.validateCertificates(chain);
                     }
+                    if (fingerprint != null) {
+                        validatedChains.put(fingerprint, chain);
+                    }
                 }
 
                 @Override
@@ -79,7 +114,7 @@ class ClientSSLSocketFactory {
         return trustManager;
     }
 
-    private CertificateValidator[] getValidators() {
+    private synchronized CertificateValidator[] getValidators() {
         if (!isSecured) {
             return new CertificateValidator[0];
         }
@@ -92,4 +127,74 @@ class ClientSSLSocketFactory {
         }
         return validators;
     }
+
+    /**
+     * Counts the handshakes of the sockets it creates. A session created before its socket was
+     * resumed from the cache.
+     */
+    private static final class HandshakeCountingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+        private final HandshakeStats stats;
+
+        HandshakeCountingSocketFactory(SSLSocketFactory delegate, HandshakeStats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose)
+                throws IOException {
+            return observe(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return observe(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return observe(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+                throws IOException {
+            return observe(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return observe(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+                                   int localPort) throws IOException {
+            return observe(delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        private Socket observe(Socket socket) {
+            if (socket instanceof SSLSocket) {
+                final long createdAt = System.currentTimeMillis();
+                ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                    @Override
+                    public void handshakeCompleted(HandshakeCompletedEvent event) {
+                        stats.record(event.getSession().getCreationTime() < createdAt);
+                    }
+                });
+            }
+            return socket;
+        }
+    }
 }
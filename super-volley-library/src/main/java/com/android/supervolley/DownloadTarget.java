@@ -0,0 +1,127 @@
+package com.android.supervolley;
+
+import java.io.File;
+import java.util.Locale;
+
+import okio.ByteString;
+
+/**
+ * Where and how a {@link com.android.supervolley.annotation.Destination @Destination} download is
+ * written. Use it in place of a plain {@link File} to verify a checksum or observe progress.
+ * <pre><code>
+ * DownloadTarget target = new DownloadTarget.Builder(file)
+ *     .sha256("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+ *     .progressListener(listener)
+ *     .build();
+ * </code></pre>
+ * Large files on servers that support HTTP ranges can be fetched as several
+ * {@linkplain Builder#segments(int) segments} in parallel, and a
+ * {@linkplain Builder#resumable(boolean) resumable} download continues where it stopped, even
+ * after the process was killed.
+ */
+public final class DownloadTarget {
+    final File file;
+    final String digestAlgorithm;
+    final ByteString expectedDigest;
+    final ProgressListener progressListener;
+    final int segments;
+    final boolean resumable;
+
+    private DownloadTarget(Builder builder) {
+        this.file = builder.file;
+        this.digestAlgorithm = builder.digestAlgorithm;
+        this.expectedDigest = builder.expectedDigest;
+        this.progressListener = builder.progressListener;
+        this.segments = builder.segments;
+        this.resumable = builder.resumable;
+    }
+
+    /**
+     * The file the body is written to.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * True if the body is requested in byte ranges rather than in a single response.
+     */
+    boolean usesRanges() {
+        return segments > 1 || resumable;
+    }
+
+    public static final class Builder {
+        private final File file;
+        private String digestAlgorithm;
+        private ByteString expectedDigest;
+        private ProgressListener progressListener;
+        private int segments = 1;
+        private boolean resumable;
+
+        public Builder(File file) {
+            this.file = Utils.checkNotNull(file, "file == null");
+        }
+
+        /**
+         * Fails the download unless the MD5 digest of the body is {@code hex}.
+         */
+        public Builder md5(String hex) {
+            return digest("MD5", hex);
+        }
+
+        /**
+         * Fails the download unless the SHA-1 digest of the body is {@code hex}.
+         */
+        public Builder sha1(String hex) {
+            return digest("SHA-1", hex);
+        }
+
+        /**
+         * Fails the download unless the SHA-256 digest of the body is {@code hex}.
+         */
+        public Builder sha256(String hex) {
+            return digest("SHA-256", hex);
+        }
+
+        private Builder digest(String algorithm, String hex) {
+            Utils.checkNotNull(hex, "hex == null");
+            this.digestAlgorithm = algorithm;
+            this.expectedDigest = ByteString.decodeHex(hex.toLowerCase(Locale.US));
+            return this;
+        }
+
+        /**
+         * Notifies {@code listener} as the body is written.
+         */
+        public Builder progressListener(ProgressListener listener) {
+            this.progressListener = Utils.checkNotNull(listener, "listener == null");
+            return this;
+        }
+
+        /**
+         * Splits the body into up to {@code segments} byte ranges which are fetched concurrently
+         * over the shared connection pool; 1 by default. Segments are at least 1 MiB, at most 8
+         * are fetched at once across all downloads, and servers without range support are
+         * downloaded in a single response.
+         */
+        public Builder segments(int segments) {
+            if (segments < 1) throw new IllegalArgumentException("segments < 1");
+            this.segments = segments;
+            return this;
+        }
+
+        /**
+         * Keeps an interrupted download and continues it on the next call with the same file,
+         * provided the server still returns the same {@code ETag} or {@code Last-Modified}
+         * validator. Progress is recorded in a small state file next to the target.
+         */
+        public Builder resumable(boolean resumable) {
+            this.resumable = resumable;
+            return this;
+        }
+
+        public DownloadTarget build() {
+            return new DownloadTarget(this);
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.android.supervolley;
+
+import com.android.volley.VolleyLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * A persistent outbox for {@link com.android.supervolley.annotation.Durable @Durable} requests.
+ * <p>
+ * Every request is appended to a log file before it is sent, and stays there until a response
+ * says it doesn't need to be sent again. Requests left in the log when the process died or the
+ * network was down are replayed in the background with exponential backoff.
+ * <p>
+ * The log is a sequence of records, each {@code [length][crc32][type][payload]}: an ENTRY holds a
+ * serialized request and an ACK the id of an entry that was delivered. A torn record at the end of
+ * the log, left by a crash during a write, is discarded on open, so requests which don't fit in a
+ * record are rejected when they are added. Appends are group-committed by a single writer thread:
+ * all records queued while the previous {@code fsync} was running share the next one. Once enough
+ * entries have been acknowledged the log is compacted by rewriting the live entries to a new file.
+ */
+final class DurableOutbox {
+    private static final byte ENTRY = 1;
+    private static final byte ACK = 2;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    private static final int MAX_ATTEMPTS = 20;
+    private static final int COMPACTION_THRESHOLD = 256;
+
+    /**
+     * Notified once a record is durable, or that it couldn't be written.
+     */
+    interface CommitListener {
+        void onCommitted(IOException failure);
+    }
+
+    private final File file;
+    private final okhttp3.Call.Factory callFactory;
+    private final ScheduledExecutorService replayExecutor;
+    private final Random random = new Random();
+    private final Thread writer;
+
+    // All guarded by this.
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    private List<Record> queue = new ArrayList<>();
+    private int acknowledged;
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+    private boolean replayScheduled;
+
+    DurableOutbox(File file, okhttp3.Call.Factory callFactory) {
+        this.file = file;
+        this.callFactory = callFactory;
+        this.replayExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SuperVolley Outbox Replay");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "SuperVolley Outbox Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Appends {@code request} to the log and notifies {@code listener} once it is durable. The
+     * request acknowledges itself when its response is delivered. Throws without appending
+     * anything if the request is too large to be read back from the log.
+     */
+    void add(BaseRequest request, CommitListener listener) throws IOException {
+        Entry entry = Entry.of(random.nextLong(), request);
+        Buffer payload = new Buffer();
+        entry.writeTo(payload);
+        if (1 + payload.size() > MAX_RECORD_SIZE) {
+            // load() would take the record for a torn tail and drop it with everything after it.
+            throw tooLarge(entry.url);
+        }
+        request.setOutboxEntry(this, entry.id);
+        synchronized (this) {
+            entries.put(entry.id, entry);
+            if (!request.isCanceled()) {
+                inFlight.add(entry.id);
+            }
+            queue.add(new Record(ENTRY, entry.id, payload, listener));
+            notifyAll();
+        }
+    }
+
+    /**
+     * Appends {@code request} to the log and waits until it is durable.
+     */
+    void addAndWait(BaseRequest request) throws IOException {
+        final IOException[] result = new IOException[1];
+        final boolean[] done = new boolean[1];
+        add(request, new CommitListener() {
+            @Override
+            public void onCommitted(IOException failure) {
+                synchronized (done) {
+                    result[0] = failure;
+                    done[0] = true;
+                    done.notifyAll();
+                }
+            }
+        });
+        synchronized (done) {
+            while (!done[0]) {
+                try {
+                    done.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing to the outbox", e);
+                }
+            }
+        }
+        if (result[0] != null) {
+            throw result[0];
+        }
+    }
+
+    /**
+     * Records the outcome of sending entry {@code id} from a live call. {@code statusCode} is 0 if
+     * no response was received.
+     */
+    void finished(long id, int statusCode) {
+        synchronized (this) {
+            inFlight.remove(id);
+        }
+        if (isFinal(statusCode)) {
+            acknowledge(id);
+        } else {
+            scheduleReplay(MIN_BACKOFF_MILLIS);
+        }
+    }
+
+    /**
+     * Replays pending entries now, e.g. because connectivity was restored.
+     */
+    void flush() {
+        synchronized (this) {
+            backoffMillis = MIN_BACKOFF_MILLIS;
+        }
+        scheduleReplay(0);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void acknowledge(long id) {
+        synchronized (this) {
+            if (entries.remove(id) == null) {
+                return;
+            }
+            acknowledged++;
+            Buffer payload = new Buffer();
+            payload.writeLong(id);
+            // Not waited for: a lost ACK only causes the entry to be sent again.
+            queue.add(new Record(ACK, id, payload, null));
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns true if a request answered with {@code statusCode} must not be sent again. Client
+     * errors won't succeed on retry, except for timeouts and rate limiting.
+     */
+    private static boolean isFinal(int statusCode) {
+        return statusCode >= 200 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+    }
+
+    private void scheduleReplay(long delayMillis) {
+        synchronized (this) {
+            if (replayScheduled) {
+                return;
+            }
+            replayScheduled = true;
+        }
+        replayExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DurableOutbox.this) {
+                    replayScheduled = false;
+                }
+                replay();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void replay() {
+        while (true) {
+            Entry entry = null;
+            synchronized (this) {
+                for (Entry candidate : entries.values()) {
+                    if (!inFlight.contains(candidate.id)) {
+                        entry = candidate;
+                        break;
+                    }
+                }
+                if (entry == null) {
+                    backoffMillis = MIN_BACKOFF_MILLIS;
+                    return;
+                }
+                inFlight.add(entry.id);
+            }
+
+            int statusCode = 0;
+            try {
+                okhttp3.Response response = callFactory.newCall(entry.toRequest()).execute();
+                statusCode = response.code();
+                response.close();
+            } catch (IOException | RuntimeException e) {
+                VolleyLog.d("Outbox replay of %s failed: %s", entry.url, e);
+            }
+
+            long delay;
+            synchronized (this) {
+                inFlight.remove(entry.id);
+                if (!isFinal(statusCode) && ++entry.attempts < MAX_ATTEMPTS) {
+                    // Most likely still offline; back off before trying any entry again.
+                    delay = backoffMillis + (long) (random.nextDouble() * backoffMillis / 2);
+                    backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+                } else {
+                    delay = -1;
+                }
+            }
+            if (delay != -1) {
+                scheduleReplay(delay);
+                return;
+            }
+            if (!isFinal(statusCode)) {
+                VolleyLog.e("Dropping outbox entry for %s after %d attempts", entry.url,
+                        MAX_ATTEMPTS);
+            }
+            acknowledge(entry.id);
+        }
+    }
+
+    private void writeLoop() {
+        FileOutputStream stream = null;
+        BufferedSink sink = null;
+        IOException openFailure = null;
+        try {
+            load();
+            stream = new FileOutputStream(file, true);
+            sink = Okio.buffer(Okio.sink(stream));
+        } catch (IOException e) {
+            VolleyLog.e("Unable to open outbox %s: %s", file, e);
+            openFailure = e;
+        }
+        scheduleReplay(0);
+
+        while (true) {
+            List<Record> batch;
+            List<Entry> live = null;
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+                if (acknowledged >= COMPACTION_THRESHOLD && acknowledged > entries.size()) {
+                    live = new ArrayList<>(entries.values());
+                    acknowledged = 0;
+                }
+            }
+
+            IOException failure = openFailure;
+            if (failure == null) {
+                try {
+                    if (live != null) {
+                        sink.close();
+                        compact(live);
+                        stream = new FileOutputStream(file, true);
+                        sink = Okio.buffer(Okio.sink(stream));
+                    }
+                    for (Record record : batch) {
+                        writeRecord(sink, record.type, record.payload);
+                    }
+                    sink.flush();
+                    stream.getFD().sync();
+                } catch (IOException e) {
+                    VolleyLog.e("Unable to write outbox %s: %s", file, e);
+                    failure = e;
+                }
+            }
+
+            if (failure != null) {
+                synchronized (this) {
+                    for (Record record : batch) {
+                        if (record.type == ENTRY) {
+                            // The caller is told; the request won't be sent.
+                            entries.remove(record.id);
+                            inFlight.remove(record.id);
+                        }
+                    }
+                }
+            }
+            for (Record record : batch) {
+                if (record.listener != null) {
+                    record.listener.onCommitted(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the log into {@link #entries}, truncating a torn or corrupt tail.
+     */
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        long valid = 0;
+        BufferedSource source = Okio.buffer(Okio.source(file));
+        try {
+            while (!source.exhausted()) {
+                if (!source.request(8)) break;
+                int length = source.readInt();
+                long crc = source.readInt() & 0xffffffffL;
+                if (length < 1 || length > MAX_RECORD_SIZE || !source.request(length)) break;
+                Buffer payload = new Buffer();
+                source.readFully(payload, length);
+                CRC32 actual = new CRC32();
+                update(actual, payload);
+                if (actual.getValue() != crc) break;
+
+                byte type = payload.readByte();
+                if (type == ENTRY) {
+                    Entry entry = Entry.readFrom(payload);
+                    synchronized (this) {
+                        entries.put(entry.id, entry);
+                    }
+                } else if (type == ACK) {
+                    long id = payload.readLong();
+                    synchronized (this) {
+                        entries.remove(id);
+                    }
+                } else {
+                    break;
+                }
+                valid += 8 + length;
+            }
+        } finally {
+            source.close();
+        }
+
+        if (valid < file.length()) {
+            RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+            try {
+                truncate.setLength(valid);
+            } finally {
+                truncate.close();
+            }
+        }
+    }
+
+    /**
+     * Replaces the log with one holding only {@code live}.
+     */
+    private void compact(List<Entry> live) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temp);
+        BufferedSink sink = Okio.buffer(Okio.sink(stream));
+        try {
+            for (Entry entry : live) {
+                Buffer payload = new Buffer();
+                entry.writeTo(payload);
+                writeRecord(sink, ENTRY, payload);
+            }
+            sink.flush();
+            stream.getFD().sync();
+        } finally {
+            sink.close();
+        }
+        if (!temp.renameTo(file)) {
+            FileDownloader.replace(temp, file);
+        }
+    }
+
+    /**
+     * Writes a record of {@code type} holding {@code payload}, which is consumed.
+     */
+    private static void writeRecord(BufferedSink sink, byte type, Buffer payload)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        update(crc, payload);
+        sink.writeInt((int) (1 + payload.size()));
+        sink.writeInt((int) crc.getValue());
+        sink.writeByte(type);
+        sink.write(payload, payload.size());
+    }
+
+    /**
+     * Feeds the bytes of {@code buffer} to {@code crc} segment by segment, without copying them.
+     */
+    private static void update(final CRC32 crc, Buffer buffer) throws IOException {
+        buffer.copyTo(new OutputStream() {
+            @Override
+            public void write(int b) {
+                crc.update(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                crc.update(b, off, len);
+            }
+        });
+    }
+
+    private static IOException tooLarge(String url) {
+        return new IOException("Request to " + url + " is too large for the outbox; @Durable"
+                + " bodies are limited to " + (MAX_RECORD_SIZE >> 20) + " MiB");
+    }
+
+    private static final class Record {
+        final byte type;
+        final long id;
+        final Buffer payload;
+        final CommitListener listener;
+
+        Record(byte type, long id, Buffer payload, CommitListener listener) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * A request as it was sent: method, URL, headers and the converted body.
+     */
+    static final class Entry {
+        final long id;
+        final String method;
+        final String url;
+        final Headers headers;
+        final String contentType;
+        final byte[] body;
+        int attempts;
+
+        Entry(long id, String method, String url, Headers headers,
+              String contentType, byte[] body) {
+            this.id = id;
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Entry of(long id, BaseRequest request) throws IOException {
+            RequestBody requestBody = request.getRequestBody();
+            String contentType = null;
+            byte[] body = null;
+            if (requestBody != null) {
+                if (requestBody.contentLength() >= MAX_RECORD_SIZE) {
+                    // Don't buffer a body which can't be logged anyway.
+                    throw tooLarge(request.getUrl());
+                }
+                Buffer buffer = new Buffer();
+                requestBody.writeTo(buffer);
+                body = buffer.readByteArray();
+                MediaType mediaType = requestBody.contentType();
+                contentType = mediaType != null ? mediaType.toString() : null;
+            }
+            return new Entry(id, MethodHelper.methodName(request.getMethod()), request.getUrl(),
+                    request.getRequestHeaders(), contentType, body);
+        }
+
+        okhttp3.Request toRequest() {
+            okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
+                    .url(url)
+                    .headers(headers);
+            RequestBody requestBody = null;
+            if (body != null) {
+                requestBody = RequestBody.create(
+                        contentType != null ? MediaType.parse(contentType) : null, body);
+            }
+            return builder.method(method, requestBody).build();
+        }
+
+        void writeTo(Buffer sink) {
+            sink.writeLong(id);
+            writeString(sink, method);
+            writeString(sink, url);
+            sink.writeInt(headers.size());
+            for (int i = 0, size = headers.size(); i < size; i++) {
+                writeString(sink, headers.name(i));
+                writeString(sink, headers.value(i));
+            }
+            writeString(sink, contentType);
+            if (body == null) {
+                sink.writeInt(-1);
+            } else {
+                sink.writeInt(body.length);
+                sink.write(body);
+            }
+        }
+
+        static Entry readFrom(Buffer source) throws IOException {
+            long id = source.readLong();
+            String method = readString(source);
+            String url = readString(source);
+            int headerCount = source.readInt();
+            Headers.Builder headers = new Headers.Builder();
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(readString(source), readString(source));
+            }
+            String contentType = readString(source);
+            int bodyLength = source.readInt();
+            byte[] body = bodyLength == -1 ? null : source.readByteArray(bodyLength);
+            return new Entry(id, method, url, headers.build(), contentType, body);
+        }
+
+        private static void writeString(Buffer sink, String value) {
+            if (value == null) {
+                sink.writeInt(-1);
+                return;
+            }
+            Buffer utf8 = new Buffer().writeUtf8(value);
+            sink.writeInt((int) utf8.size());
+            sink.writeAll(utf8);
+        }
+
+        private static String readString(Buffer source) throws IOException {
+            int length = source.readInt();
+            return length == -1 ? null : source.readUtf8(length);
+        }
+    }
+}
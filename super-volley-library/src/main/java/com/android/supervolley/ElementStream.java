@@ -0,0 +1,40 @@
+package com.android.supervolley;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream of elements decoded one at a time from a response body that is still being received.
+ * Use it as the response type of a {@link com.android.supervolley.annotation.Streaming @Streaming}
+ * method to read large arrays without holding all of their elements in memory.
+ * <pre><code>
+ * &#64;Streaming
+ * &#64;GET("events")
+ * Call&lt;ElementStream&lt;Event&gt;&gt; events();
+ * </code></pre>
+ * The stream owns the underlying connection and must be {@linkplain #close() closed}. Since
+ * {@link #hasNext()} and {@link #next()} read from the network, the call must be made with
+ * {@link Call#execute()} on a background thread, or through the RxJava 2 adapter;
+ * {@link Call#enqueue(Callback)} would hand the stream to the main thread and is rejected there.
+ *
+ * @param <T> Element type.
+ */
+public interface ElementStream<T> extends Closeable {
+    /**
+     * Returns true if another element is available, reading from the network if necessary.
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * Returns the next element.
+     *
+     * @throws java.util.NoSuchElementException if the stream is exhausted.
+     */
+    T next() throws IOException;
+
+    /**
+     * Releases the response body and its connection.
+     */
+    @Override
+    void close();
+}
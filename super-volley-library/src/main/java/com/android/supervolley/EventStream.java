@@ -0,0 +1,30 @@
+package com.android.supervolley;
+
+/**
+ * A stream of events pushed by the server as {@code text/event-stream} (Server-Sent Events) or
+ * newline-delimited JSON ({@code application/x-ndjson}). The data of each event is decoded with the
+ * converter for {@code T}, as the event arrives.
+ * <pre><code>
+ * &#64;GET("notifications")
+ * Call&lt;EventStream&lt;Notification&gt;&gt; notifications();
+ * </code></pre>
+ * When a Server-Sent Events connection is lost the stream reconnects on its own, sending the
+ * {@code Last-Event-ID} header, after the delay requested by the server's {@code retry} field. The
+ * stream ends when the server answers a reconnection with {@code 204 No Content}; a
+ * newline-delimited JSON stream ends with its response body.
+ *
+ * @param <T> Event data type.
+ */
+public interface EventStream<T> extends ElementStream<T> {
+    /**
+     * The {@code id} of the last event received, or null if the server hasn't sent one. This is
+     * the value sent as {@code Last-Event-ID} on reconnection.
+     */
+    String lastEventId();
+
+    /**
+     * The {@code event} type of the last event received; {@code "message"} if the server didn't
+     * name it.
+     */
+    String lastEventType();
+}
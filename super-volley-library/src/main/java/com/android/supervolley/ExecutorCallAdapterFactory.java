@@ -20,6 +20,8 @@ final class ExecutorCallAdapterFactory extends CallAdapter.Factory {
             return null;
         }
         final Type responseType = Utils.getCallResponseType(returnType);
+        final boolean isElementStream =
+                ElementStream.class.isAssignableFrom(Utils.getRawType(responseType));
         return new CallAdapter<Object, Call<?>>() {
             @Override
             public Type responseType() {
@@ -28,7 +30,7 @@ final class ExecutorCallAdapterFactory extends CallAdapter.Factory {
 
             @Override
             public Call<Object> adapt(Call<Object> call) {
-                return new ExecutorCallbackCall<>(callbackExecutor, call);
+                return new ExecutorCallbackCall<>(callbackExecutor, call, isElementStream);
             }
         };
     }
@@ -36,10 +38,12 @@ final class ExecutorCallAdapterFactory extends CallAdapter.Factory {
     static final class ExecutorCallbackCall<T> implements Call<T> {
         final Executor callbackExecutor;
         final Call<T> delegate;
+        final boolean isElementStream;
 
-        ExecutorCallbackCall(Executor callbackExecutor, Call<T> delegate) {
+        ExecutorCallbackCall(Executor callbackExecutor, Call<T> delegate, boolean isElementStream) {
             this.callbackExecutor = callbackExecutor;
             this.delegate = delegate;
+            this.isElementStream = isElementStream;
         }
 
         @Override
@@ -50,6 +54,12 @@ final class ExecutorCallAdapterFactory extends CallAdapter.Factory {
         @Override
         public void enqueue(final Callback<T> callback) {
             if (callback == null) throw new NullPointerException("callback == null");
+            if (isElementStream) {
+                // Every hasNext() reads the socket, which the callback executor (the main thread
+                // on Android) must not do.
+                throw new UnsupportedOperationException("ElementStream calls can't be enqueued;"
+                        + " call execute() on a background thread or use the RxJava 2 adapter.");
+            }
 
             delegate.enqueue(new Callback<T>() {
                 @Override
@@ -97,7 +107,7 @@ final class ExecutorCallAdapterFactory extends CallAdapter.Factory {
         @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
         @Override
         public Call<T> clone() {
-            return new ExecutorCallbackCall<>(callbackExecutor, delegate.clone());
+            return new ExecutorCallbackCall<>(callbackExecutor, delegate.clone(), isElementStream);
         }
 
         @Override
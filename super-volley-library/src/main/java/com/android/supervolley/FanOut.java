@@ -0,0 +1,155 @@
+package com.android.supervolley;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs a collection of calls with at most {@code parallelism} of them in flight. Each completed
+ * call starts the next one, so no thread is blocked while waiting.
+ */
+final class FanOut<T> {
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private final List<Call<T>> calls;
+    private final int parallelism;
+    private final BulkPolicy policy;
+    private final BulkCallback<T> callback;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final AtomicIntegerArray states;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    FanOut(Collection<? extends Call<T>> calls, int parallelism, BulkPolicy policy,
+           BulkCallback<T> callback) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism <= 0");
+        this.calls = new ArrayList<>(Utils.checkNotNull(calls, "calls == null"));
+        this.parallelism = parallelism;
+        this.policy = Utils.checkNotNull(policy, "policy == null");
+        this.callback = Utils.checkNotNull(callback, "callback == null");
+        this.remaining = new AtomicInteger(this.calls.size());
+        this.states = new AtomicIntegerArray(this.calls.size());
+    }
+
+    void start() {
+        if (calls.isEmpty()) {
+            complete(null);
+            return;
+        }
+        for (int i = 0, count = Math.min(parallelism, calls.size()); i < count; i++) {
+            startNext();
+        }
+    }
+
+    private void startNext() {
+        if (completed.get()) return;
+        final int index = next.getAndIncrement();
+        if (index >= calls.size()) return;
+
+        if (!states.compareAndSet(index, PENDING, RUNNING)) return; // Failed fast meanwhile.
+        final Call<T> call = calls.get(index);
+        try {
+            call.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> ignored, Response<T> response) {
+                    if (!states.compareAndSet(index, RUNNING, DONE) || completed.get()) return;
+                    try {
+                        callback.onResponse(index, call, response);
+                    } finally {
+                        // Move on even if the callback threw, or the fan-out would never complete.
+                        if (policy == BulkPolicy.FAIL_FAST && !response.isSuccessful()) {
+                            fail(new IOException(
+                                    "Call #" + index + " failed: HTTP " + response.code()));
+                        } else {
+                            finished();
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<T> ignored, Throwable t) {
+                    if (!states.compareAndSet(index, RUNNING, DONE) || completed.get()) return;
+                    try {
+                        callback.onFailure(index, call, t);
+                    } finally {
+                        failed(t);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // A call that was already executed can't be enqueued again.
+            if (states.compareAndSet(index, RUNNING, DONE)) {
+                try {
+                    callback.onFailure(index, call, e);
+                } finally {
+                    failed(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives up on the calls which haven't completed yet, e.g. because one of them was canceled
+     * elsewhere and will never call back. They are canceled and, unless the policy fails fast,
+     * reported as failed with {@code failure} before the fan-out completes.
+     */
+    void timedOut(IOException failure) {
+        if (policy == BulkPolicy.FAIL_FAST) {
+            fail(failure);
+            return;
+        }
+        if (!completed.compareAndSet(false, true)) return;
+        try {
+            for (int i = 0, size = calls.size(); i < size; i++) {
+                int state = states.getAndSet(i, DONE);
+                if (state == RUNNING) {
+                    calls.get(i).cancel();
+                }
+                if (state != DONE) {
+                    callback.onFailure(i, calls.get(i), failure);
+                }
+            }
+        } finally {
+            callback.onComplete(null);
+        }
+    }
+
+    private void failed(Throwable failure) {
+        if (policy == BulkPolicy.FAIL_FAST) {
+            fail(failure);
+        } else {
+            finished();
+        }
+    }
+
+    private void finished() {
+        if (remaining.decrementAndGet() == 0) {
+            complete(null);
+        } else {
+            startNext();
+        }
+    }
+
+    private void fail(Throwable failure) {
+        if (!completed.compareAndSet(false, true)) return;
+        for (int i = 0, size = calls.size(); i < size; i++) {
+            if (states.getAndSet(i, DONE) == RUNNING) {
+                calls.get(i).cancel();
+            }
+        }
+        callback.onComplete(failure);
+    }
+
+    private void complete(Throwable failure) {
+        if (completed.compareAndSet(false, true)) {
+            callback.onComplete(failure);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.android.supervolley;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.HashingSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Writes a response body to a {@link DownloadTarget}. Segments read from the network are handed
+ * to the file sink as they are, so memory use is bounded by one chunk regardless of the body size.
+ */
+final class FileDownloader {
+    private static final long CHUNK_SIZE = 64 * 1024;
+
+    private FileDownloader() {
+        // No instances.
+    }
+
+    static File download(DownloadTarget target, ResponseBody body) throws IOException {
+        File file = target.file;
+        File partial = partialFile(file);
+        long contentLength = body.contentLength();
+        BufferedSource source = body.source();
+
+        FileOutputStream stream = null;
+        Sink sink = null;
+        boolean success = false;
+        try {
+            stream = new FileOutputStream(partial);
+            sink = Okio.sink(stream);
+            HashingSink hashingSink = null;
+            if (target.digestAlgorithm != null) {
+                hashingSink = hashingSink(target.digestAlgorithm, sink);
+                sink = hashingSink;
+            }
+
+            Buffer buffer = new Buffer();
+            long total = 0;
+            for (long read; (read = source.read(buffer, CHUNK_SIZE)) != -1; ) {
+                sink.write(buffer, read);
+                total += read;
+                if (target.progressListener != null) {
+                    target.progressListener.onProgress(total, contentLength);
+                }
+            }
+            sink.flush();
+            stream.getFD().sync();
+
+            if (contentLength != -1 && total != contentLength) {
+                throw new IOException("Expected " + contentLength + " bytes but received " + total);
+            }
+            if (hashingSink != null && !hashingSink.hash().equals(target.expectedDigest)) {
+                throw new IOException(target.digestAlgorithm + " mismatch: expected "
+                        + target.expectedDigest.hex() + " but was " + hashingSink.hash().hex());
+            }
+
+            sink.close();
+            sink = null;
+            replace(partial, file);
+            success = true;
+            return file;
+        } finally {
+            if (sink != null) {
+                closeQuietly(sink);
+            } else if (stream != null) {
+                closeQuietly(stream);
+            }
+            body.close();
+            if (!success) {
+                //noinspection ResultOfMethodCallIgnored
+                partial.delete();
+            }
+        }
+    }
+
+    static File partialFile(File file) {
+        return new File(file.getPath() + ".part");
+    }
+
+    static HashingSink hashingSink(String algorithm, Sink sink) {
+        switch (algorithm) {
+            case "MD5":
+                return HashingSink.md5(sink);
+            case "SHA-1":
+                return HashingSink.sha1(sink);
+            case "SHA-256":
+                return HashingSink.sha256(sink);
+            default:
+                throw new IllegalArgumentException("Unsupported digest: " + algorithm);
+        }
+    }
+
+    static void replace(File source, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Unable to delete " + target);
+        }
+        if (!source.renameTo(target)) {
+            throw new IOException("Unable to rename " + source + " to " + target);
+        }
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (RuntimeException rethrown) {
+            throw rethrown;
+        } catch (Exception ignored) {
+        }
+    }
+}
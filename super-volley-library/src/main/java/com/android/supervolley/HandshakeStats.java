@@ -0,0 +1,44 @@
+package com.android.supervolley;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the TLS handshakes of a {@link SuperVolley} instance. A resumed handshake reuses a
+ * session from the client's session cache and skips the key exchange and certificate validation
+ * of a full handshake, so a low resumption ratio on a busy client points to connection churn or a
+ * session cache that is too small.
+ * <p>
+ * Only connections made by the default client are counted; a client set with
+ * {@link SuperVolley.Builder#client} or {@link SuperVolley.Builder#callFactory} brings its own
+ * socket factory.
+ */
+public final class HandshakeStats {
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+
+    HandshakeStats() {
+    }
+
+    void record(boolean resumed) {
+        (resumed ? resumedHandshakes : fullHandshakes).incrementAndGet();
+    }
+
+    /**
+     * The number of handshakes that negotiated a new session.
+     */
+    public long fullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * The number of handshakes that resumed a cached session.
+     */
+    public long resumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HandshakeStats{full=" + fullHandshakes() + ", resumed=" + resumedHandshakes() + '}';
+    }
+}
@@ -0,0 +1,73 @@
+package com.android.supervolley;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okhttp3.Headers;
+
+/**
+ * A read-only {@code Map} view of {@link Headers}, for the Volley APIs which expect one.
+ * <p>
+ * Lookups are case-insensitive and return the last value of a header, like
+ * {@link Headers#get(String)}; {@link #values(String)} returns all of them, so repeated headers
+ * such as {@code Set-Cookie} aren't lost. Nothing is copied until the entries are iterated.
+ */
+final class HeaderView extends AbstractMap<String, String> {
+    private final Headers headers;
+    private Set<Map.Entry<String, String>> entrySet;
+
+    HeaderView(Headers headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * The headers this is a view of.
+     */
+    Headers headers() {
+        return headers;
+    }
+
+    /**
+     * All values of the header {@code name}, in the order they were received.
+     */
+    List<String> values(String name) {
+        return headers.values(name);
+    }
+
+    @Override
+    public String get(Object key) {
+        return key instanceof String ? headers.get((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return headers.size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return entrySet().size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        Set<Map.Entry<String, String>> result = entrySet;
+        if (result == null) {
+            Set<Map.Entry<String, String>> entries = new LinkedHashSet<>();
+            for (String name : headers.names()) {
+                entries.add(new SimpleImmutableEntry<>(name, headers.get(name)));
+            }
+            entrySet = result = Collections.unmodifiableSet(entries);
+        }
+        return result;
+    }
+}
@@ -5,7 +5,10 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import okhttp3.Connection;
 import okhttp3.Headers;
@@ -18,7 +21,11 @@ import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import okhttp3.internal.http.HttpHeaders;
 import okio.Buffer;
+import okio.BufferedSink;
 import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
 
 import static okhttp3.internal.platform.Platform.INFO;
 
@@ -28,9 +35,18 @@ import static okhttp3.internal.platform.Platform.INFO;
  * OkHttpClient#networkInterceptors() network interceptor}. <p> The format of the logs created by
  * this class should not be considered stable and may change slightly between releases. If you need
  * a stable logging format, use your own interceptor.
+ * <p>
+ * The request thread only captures a compact record of each exchange: its lines, headers, sizes,
+ * timing and at most {@link #MAX_BODY_PREFIX} bytes of each body, copied while the body streams
+ * past rather than buffered in full. Records are handed to a background writer through a
+ * {@link LogRingBuffer}, which formats and logs them; when the writer falls behind, records are
+ * dropped and counted instead of slowing requests down. A sample rate below 1 logs only that
+ * fraction of exchanges.
  */
 final class HttpLoggingInterceptor implements Interceptor {
     private static final Charset UTF8 = Charset.forName("UTF-8");
+    static final int MAX_BODY_PREFIX = 4096;
+    private static final int RING_CAPACITY = 1024;
 
     interface Logger {
         void log(String message);
@@ -55,8 +71,14 @@ final class HttpLoggingInterceptor implements Interceptor {
     }
 
     private final Logger logger;
+    private final LogRingBuffer<Record> ring = new LogRingBuffer<>(RING_CAPACITY);
+    private final AtomicBoolean writerStarted = new AtomicBoolean();
+    private final Random random = new Random();
+    private volatile Thread writer;
+    private volatile boolean writerParked;
 
     private volatile LogLevel level = LogLevel.NONE;
+    private volatile double sampleRate = 1;
 
     /**
      * Change the level at which this interceptor logs.
@@ -67,6 +89,17 @@ final class HttpLoggingInterceptor implements Interceptor {
         return this;
     }
 
+    /**
+     * Logs only a random {@code sampleRate} fraction of the exchanges.
+     */
+    HttpLoggingInterceptor setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be in [0, 1]");
+        }
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
     public LogLevel getLevel() {
         return level;
     }
@@ -76,37 +109,143 @@ final class HttpLoggingInterceptor implements Interceptor {
         LogLevel level = this.level;
 
         Request request = chain.request();
-        if (level == LogLevel.NONE) {
+        if (level == LogLevel.NONE || !sampled()) {
             return chain.proceed(request);
         }
 
         boolean logBody = level == LogLevel.BODY;
         boolean logHeaders = logBody || level == LogLevel.HEADERS;
 
+        final Record record = new Record(logHeaders, logBody);
+        Connection connection = chain.connection();
+        record.method = request.method();
+        record.url = request.url().toString();
+        record.protocol = connection != null ? connection.protocol() : Protocol.HTTP_1_1;
+        if (logHeaders) {
+            record.requestHeaders = request.headers();
+        }
+
         RequestBody requestBody = request.body();
-        boolean hasRequestBody = requestBody != null;
+        if (requestBody != null) {
+            record.hasRequestBody = true;
+            record.requestContentType = requestBody.contentType();
+            record.requestContentLength = requestBody.contentLength();
+            if (logBody && !bodyEncoded(request.headers())) {
+                record.requestPrefix = new Buffer();
+                request = request.newBuilder()
+                        .method(request.method(), new TeeRequestBody(requestBody, record.requestPrefix))
+                        .build();
+            }
+        }
 
-        Connection connection = chain.connection();
-        Protocol protocol = connection != null ? connection.protocol() : Protocol.HTTP_1_1;
-        String requestStartMessage = "--> " + request.method() + ' ' + request.url() + ' ' + protocol;
-        if (!logHeaders && hasRequestBody) {
-            requestStartMessage += " (" + requestBody.contentLength() + "-byte body)";
+        long startNs = System.nanoTime();
+        okhttp3.Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (Exception e) {
+            record.failure = e;
+            publish(record);
+            throw e;
         }
-        logger.log(requestStartMessage);
+        record.tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
 
+        ResponseBody responseBody = response.body();
+        record.code = response.code();
+        record.message = response.message();
+        record.responseUrl = response.request().url().toString();
+        record.responseContentLength = responseBody.contentLength();
         if (logHeaders) {
-            if (hasRequestBody) {
+            record.responseHeaders = response.headers();
+        }
+
+        if (!logBody || !HttpHeaders.hasBody(response) || bodyEncoded(response.headers())) {
+            record.responseHasBody = logBody && HttpHeaders.hasBody(response);
+            publish(record);
+            return response;
+        }
+
+        // Published once the caller has read or closed the body.
+        record.responseHasBody = true;
+        record.responseContentType = responseBody.contentType();
+        record.responsePrefix = new Buffer();
+        return response.newBuilder()
+                .body(new TeeResponseBody(responseBody, record))
+                .build();
+    }
+
+    private boolean sampled() {
+        double sampleRate = this.sampleRate;
+        return sampleRate >= 1 || random.nextDouble() < sampleRate;
+    }
+
+    private void publish(Record record) {
+        if (!record.published.compareAndSet(false, true)) {
+            return;
+        }
+        if (writerStarted.compareAndSet(false, true)) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            }, "SuperVolley Log Writer");
+            thread.setDaemon(true);
+            writer = thread;
+            thread.start();
+        }
+        if (ring.offer(record) && writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Record record = ring.poll();
+            if (record == null) {
+                writerParked = true;
+                record = ring.poll();
+                if (record == null) {
+                    LockSupport.park(this);
+                    writerParked = false;
+                    continue;
+                }
+                writerParked = false;
+            }
+            long dropped = ring.takeDropped();
+            if (dropped > 0) {
+                logger.log("(" + dropped + " log records dropped)");
+            }
+            try {
+                write(record);
+            } catch (RuntimeException e) {
+                logger.log("Unable to log " + record.method + ' ' + record.url + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Formats {@code record} on the writer thread.
+     */
+    private void write(Record record) {
+        String requestStartMessage = "--> " + record.method + ' ' + record.url + ' ' + record.protocol;
+        if (!record.logHeaders && record.hasRequestBody) {
+            requestStartMessage += " (" + record.requestContentLength + "-byte body)";
+        }
+        logger.log(requestStartMessage);
+
+        if (record.logHeaders) {
+            if (record.hasRequestBody) {
                 // Request body headers are only present when installed as a network interceptor. Force
                 // them to be included (when available) so there values are known.
-                if (requestBody.contentType() != null) {
-                    logger.log("Content-Type: " + requestBody.contentType());
+                if (record.requestContentType != null) {
+                    logger.log("Content-Type: " + record.requestContentType);
                 }
-                if (requestBody.contentLength() != -1) {
-                    logger.log("Content-Length: " + requestBody.contentLength());
+                if (record.requestContentLength != -1) {
+                    logger.log("Content-Length: " + record.requestContentLength);
                 }
             }
 
-            Headers headers = request.headers();
+            Headers headers = record.requestHeaders;
             for (int i = 0, count = headers.size(); i < count; i++) {
                 String name = headers.name(i);
                 // Skip headers from the request body as they are explicitly logged above.
@@ -115,94 +254,70 @@ final class HttpLoggingInterceptor implements Interceptor {
                 }
             }
 
-            if (!logBody || !hasRequestBody) {
-                logger.log("--> END " + request.method());
-            } else if (bodyEncoded(request.headers())) {
-                logger.log("--> END " + request.method() + " (encoded body omitted)");
+            if (!record.logBody || !record.hasRequestBody) {
+                logger.log("--> END " + record.method);
+            } else if (record.requestPrefix == null) {
+                logger.log("--> END " + record.method + " (encoded body omitted)");
             } else {
-                Buffer buffer = new Buffer();
-                requestBody.writeTo(buffer);
-
-                Charset charset = UTF8;
-                MediaType contentType = requestBody.contentType();
-                if (contentType != null) {
-                    charset = contentType.charset(UTF8);
-                }
-
                 logger.log("");
-                if (isPlaintext(buffer)) {
-                    logger.log(buffer.readString(charset));
-                    logger.log("--> END " + request.method()
-                            + " (" + requestBody.contentLength() + "-byte body)");
-                } else {
-                    logger.log("--> END " + request.method() + " (binary "
-                            + requestBody.contentLength() + "-byte body omitted)");
-                }
+                logBody(record.requestPrefix, record.requestContentType,
+                        "--> END " + record.method, record.requestContentLength);
             }
         }
 
-        long startNs = System.nanoTime();
-        okhttp3.Response response;
-        try {
-            response = chain.proceed(request);
-        } catch (Exception e) {
-            logger.log("<-- HTTP FAILED: " + e);
-            throw e;
+        if (record.failure != null) {
+            logger.log("<-- HTTP FAILED: " + record.failure);
+            return;
         }
-        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
 
-        ResponseBody responseBody = response.body();
-        long contentLength = responseBody.contentLength();
+        long contentLength = record.responseContentLength;
         String bodySize = contentLength != -1 ? contentLength + "-byte" : "unknown-length";
-        logger.log("<-- " + response.code() + ' ' + response.message() + ' '
-                + response.request().url() + " (" + tookMs + "ms" + (!logHeaders ? ", "
+        logger.log("<-- " + record.code + ' ' + record.message + ' '
+                + record.responseUrl + " (" + record.tookMs + "ms" + (!record.logHeaders ? ", "
                 + bodySize + " body" : "") + ')');
 
-        if (logHeaders) {
-            Headers headers = response.headers();
+        if (record.logHeaders) {
+            Headers headers = record.responseHeaders;
             for (int i = 0, count = headers.size(); i < count; i++) {
                 logger.log(headers.name(i) + ": " + headers.value(i));
             }
 
-            if (!logBody || !HttpHeaders.hasBody(response)) {
+            if (!record.logBody || !record.responseHasBody) {
                 logger.log("<-- END HTTP");
-            } else if (bodyEncoded(response.headers())) {
+            } else if (record.responsePrefix == null) {
                 logger.log("<-- END HTTP (encoded body omitted)");
             } else {
-                BufferedSource source = responseBody.source();
-                source.request(Long.MAX_VALUE); // Buffer the entire body.
-                Buffer buffer = source.buffer();
-
-                Charset charset = UTF8;
-                MediaType contentType = responseBody.contentType();
-                if (contentType != null) {
-                    try {
-                        charset = contentType.charset(UTF8);
-                    } catch (UnsupportedCharsetException e) {
-                        logger.log("");
-                        logger.log("Couldn't decode the response body; charset is likely malformed.");
-                        logger.log("<-- END HTTP");
-
-                        return response;
-                    }
-                }
-
-                if (!isPlaintext(buffer)) {
-                    logger.log("");
-                    logger.log("<-- END HTTP (binary " + buffer.size() + "-byte body omitted)");
-                    return response;
-                }
-
-                if (contentLength != 0) {
+                if (record.responseBytes != 0) {
                     logger.log("");
-                    logger.log(buffer.clone().readString(charset));
                 }
+                logBody(record.responsePrefix, record.responseContentType, "<-- END HTTP",
+                        record.responseBytes);
+            }
+        }
+    }
 
-                logger.log("<-- END HTTP (" + buffer.size() + "-byte body)");
+    private void logBody(Buffer prefix, MediaType contentType, String end, long byteCount) {
+        Charset charset = UTF8;
+        if (contentType != null) {
+            try {
+                charset = contentType.charset(UTF8);
+            } catch (UnsupportedCharsetException e) {
+                logger.log("Couldn't decode the body; charset is likely malformed.");
+                logger.log(end);
+                return;
             }
         }
 
-        return response;
+        if (!isPlaintext(prefix)) {
+            logger.log(end + " (binary " + byteCount + "-byte body omitted)");
+            return;
+        }
+
+        boolean truncated = byteCount > prefix.size() || byteCount == -1;
+        if (prefix.size() > 0) {
+            logger.log(prefix.readString(charset) + (truncated ? "…" : ""));
+        }
+        logger.log(end + " (" + byteCount + "-byte body" + (truncated ? ", truncated" : "") + ")");
     }
 
     /**
@@ -233,4 +348,147 @@ final class HttpLoggingInterceptor implements Interceptor {
         String contentEncoding = headers.get("Content-Encoding");
         return contentEncoding != null && !contentEncoding.equalsIgnoreCase("identity");
     }
+
+    /**
+     * Copies {@code byteCount} bytes of {@code source}, starting at {@code offset}, into
+     * {@code sink} until it holds {@link #MAX_BODY_PREFIX} bytes.
+     */
+    private static void copyPrefix(Buffer source, long offset, long byteCount, Buffer sink) {
+        long wanted = Math.min(byteCount, MAX_BODY_PREFIX - sink.size());
+        if (wanted > 0) {
+            source.copyTo(sink, offset, wanted);
+        }
+    }
+
+    /**
+     * Everything the writer needs to log one exchange. Written by the request thread before it
+     * is published, read by the writer thread after.
+     */
+    private static final class Record {
+        final boolean logHeaders;
+        final boolean logBody;
+        final AtomicBoolean published = new AtomicBoolean();
+
+        String method;
+        String url;
+        Protocol protocol;
+        Headers requestHeaders;
+        boolean hasRequestBody;
+        MediaType requestContentType;
+        long requestContentLength;
+        Buffer requestPrefix;
+
+        Exception failure;
+        long tookMs;
+        int code;
+        String message;
+        String responseUrl;
+        Headers responseHeaders;
+        long responseContentLength;
+        boolean responseHasBody;
+        MediaType responseContentType;
+        Buffer responsePrefix;
+        long responseBytes;
+
+        Record(boolean logHeaders, boolean logBody) {
+            this.logHeaders = logHeaders;
+            this.logBody = logBody;
+        }
+    }
+
+    /**
+     * Keeps a prefix of the request body as it is written to the network.
+     */
+    private static final class TeeRequestBody extends RequestBody {
+        private final RequestBody delegate;
+        private final Buffer prefix;
+
+        TeeRequestBody(RequestBody delegate, Buffer prefix) {
+            this.delegate = delegate;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            final boolean capture = prefix.size() == 0; // Only the first attempt.
+            BufferedSink tee = Okio.buffer(new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    if (capture) {
+                        copyPrefix(source, 0, byteCount, prefix);
+                    }
+                    super.write(source, byteCount);
+                }
+            });
+            delegate.writeTo(tee);
+            tee.emit();
+        }
+    }
+
+    /**
+     * Keeps a prefix of the response body as the caller reads it, and publishes the record when
+     * the body is exhausted or closed.
+     */
+    private final class TeeResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final Record record;
+        private BufferedSource source;
+
+        TeeResponseBody(ResponseBody delegate, Record record) {
+            this.delegate = delegate;
+            this.record = record;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            if (source == null) {
+                source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read == -1) {
+                            publish(record);
+                        } else {
+                            copyPrefix(sink, sink.size() - read, read, record.responsePrefix);
+                            record.responseBytes += read;
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        publish(record);
+                        super.close();
+                    }
+                });
+            }
+            return source;
+        }
+
+        @Override
+        public void close() {
+            publish(record);
+            delegate.close();
+        }
+    }
 }
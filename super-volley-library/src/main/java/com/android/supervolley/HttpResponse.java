@@ -3,16 +3,27 @@ package com.android.supervolley;
 
 import com.android.volley.Request;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class HttpResponse {
 
     private int code;
     private String raw;
+    // The raw body as received, until toString() decodes it.
+    private byte[] rawData;
+    private int rawLength;
+    private Charset rawCharset;
     private String message;
     private boolean isSuccessful;
     private BaseRequest request;
+    // Kept instead of the request by lean responses.
+    private String url;
+    private Map<String, String> headers;
+    private long networkTimeMs;
 
     private HttpResponse(BaseRequest request, int code, String raw, String message, boolean isSuccessful) {
         this.request = request;
@@ -22,6 +33,28 @@ public class HttpResponse {
         this.isSuccessful = isSuccessful;
     }
 
+    /**
+     * Returns a copy which keeps the status, headers and timing of this response but neither the
+     * request nor more than {@code maxRawLength} characters of the raw body, so that holding on to
+     * a converted response doesn't hold on to its payload.
+     */
+    synchronized HttpResponse lean(int maxRawLength) {
+        String leanRaw = raw;
+        if (leanRaw == null && rawData != null) {
+            // No character takes more than 4 bytes, so this prefix holds every kept character.
+            int length = (int) Math.min(rawLength, (maxRawLength + 1L) * 4);
+            leanRaw = new String(rawData, 0, length, rawCharset);
+        }
+        if (leanRaw != null && leanRaw.length() > maxRawLength) {
+            leanRaw = leanRaw.substring(0, maxRawLength);
+        }
+        HttpResponse result = new HttpResponse(null, code, leanRaw, message, isSuccessful);
+        result.url = url();
+        result.headers = headers();
+        result.networkTimeMs = networkTimeMs();
+        return result;
+    }
+
     public int code() {
         return code;
     }
@@ -34,23 +67,71 @@ public class HttpResponse {
         return isSuccessful;
     }
 
+    /**
+     * The request of this response, or null for a lean response.
+     */
     public Request request() {
         return request;
     }
 
+    public String url() {
+        return request != null ? request.getUrl() : url;
+    }
+
     @SuppressWarnings("unchecked")
     public Map<String, String> headers() {
+        if (headers != null) {
+            return headers;
+        }
         return request != null ? request.getResponseHeaders() : Collections.<String, String>emptyMap();
     }
 
+    /**
+     * All values of the response header {@code name}, including repeated ones such as
+     * {@code Set-Cookie}.
+     */
+    public List<String> headers(String name) {
+        Map<String, String> headers = headers();
+        if (headers instanceof HeaderView) {
+            return ((HeaderView) headers).values(name);
+        }
+        String value = headers.get(name);
+        return value != null ? Collections.singletonList(value) : Collections.<String>emptyList();
+    }
+
+    /**
+     * The time it took to receive this response from the network, in milliseconds, or 0 if it is
+     * unknown.
+     */
+    public long networkTimeMs() {
+        return request != null ? request.getNetworkTimeMs() : networkTimeMs;
+    }
+
+    /**
+     * Copies the raw body out of {@code buffer}, which is about to be reused, if it is still read
+     * from there.
+     */
+    synchronized void detachRaw(byte[] buffer) {
+        if (rawData == buffer) {
+            rawData = Arrays.copyOf(rawData, rawLength);
+        }
+    }
+
     @Override
-    public String toString() {
+    public synchronized String toString() {
+        if (raw == null && rawData != null) {
+            raw = new String(rawData, 0, rawLength, rawCharset);
+            rawData = null;
+        }
         return raw;
     }
 
     public static class Builder {
         private int code;
         private String raw;
+        private byte[] rawData;
+        private int rawLength;
+        private Charset rawCharset;
         private String message;
         private boolean isSuccessful;
         private BaseRequest request;
@@ -80,8 +161,25 @@ public class HttpResponse {
             return this;
         }
 
+        /**
+         * Sets the raw body to the first {@code length} bytes of {@code data}, which are only
+         * decoded if {@link HttpResponse#toString()} is called.
+         */
+        Builder raw(byte[] data, int length, Charset charset) {
+            this.rawData = data;
+            this.rawLength = length;
+            this.rawCharset = charset;
+            return this;
+        }
+
         public HttpResponse build() {
-            return new HttpResponse(request, code, raw, message, isSuccessful);
+            HttpResponse response = new HttpResponse(request, code, raw, message, isSuccessful);
+            if (raw == null) {
+                response.rawData = rawData;
+                response.rawLength = rawLength;
+                response.rawCharset = rawCharset;
+            }
+            return response;
         }
     }
 }
@@ -0,0 +1,83 @@
+package com.android.supervolley;
+
+/**
+ * A snapshot of a call that hasn't completed yet, as returned by
+ * {@link SuperVolley#inFlightCalls()}.
+ */
+public final class InFlightCall {
+
+    /**
+     * Where a call is in its lifecycle.
+     */
+    public enum State {
+        /**
+         * Waiting for a scheduler slot, a batch, or a dispatcher thread.
+         */
+        QUEUED,
+        /**
+         * Being looked up in the Volley cache.
+         */
+        CACHE,
+        /**
+         * Being sent, or waiting for the response.
+         */
+        NETWORK,
+        /**
+         * The response is being parsed.
+         */
+        CONVERTING,
+        /**
+         * The response has been posted to the callback executor.
+         */
+        DELIVERING
+    }
+
+    private final String serviceMethod;
+    private final String url;
+    private final State state;
+    private final long ageMillis;
+    private final int attempts;
+
+    InFlightCall(String serviceMethod, String url, State state, long ageMillis, int attempts) {
+        this.serviceMethod = serviceMethod;
+        this.url = url;
+        this.state = state;
+        this.ageMillis = ageMillis;
+        this.attempts = attempts;
+    }
+
+    /**
+     * The interface method, as {@code Service.method}.
+     */
+    public String serviceMethod() {
+        return serviceMethod;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * The time since the call was enqueued.
+     */
+    public long ageMillis() {
+        return ageMillis;
+    }
+
+    /**
+     * The number of network attempts so far, including retries.
+     */
+    public int attempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return serviceMethod + ' ' + url + " [" + state + ", " + ageMillis + "ms, "
+                + attempts + " attempts]";
+    }
+}
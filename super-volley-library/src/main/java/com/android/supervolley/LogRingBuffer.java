@@ -0,0 +1,79 @@
+package com.android.supervolley;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue of log records with many producers and a single consumer.
+ * <p>
+ * Each slot carries a sequence number telling whose turn it is: a producer claims a slot by
+ * advancing the tail with a compare-and-set, and publishes it by bumping the slot's sequence.
+ * When the buffer is full a record is dropped rather than blocking the request thread; the
+ * number of dropped records is kept.
+ */
+final class LogRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head; // Only accessed by the consumer.
+
+    LogRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.items = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds {@code item}, or drops it and returns false if the buffer is full.
+     */
+    boolean offer(T item) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, item);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Another producer claimed this slot first; try the next one.
+        }
+    }
+
+    /**
+     * Removes and returns the oldest item, or null if there is none. Must only be called from the
+     * consumer thread.
+     */
+    T poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T item = items.get(index);
+        items.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return item;
+    }
+
+    /**
+     * Returns the number of records dropped since the last call, and resets it.
+     */
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
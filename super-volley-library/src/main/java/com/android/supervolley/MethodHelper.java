@@ -35,4 +35,35 @@ class MethodHelper {
                 throw new IllegalStateException("Unknown method type.");
         }
     }
+
+    static String methodName(int method) {
+        switch (method) {
+            case Request.Method.GET:
+                return "GET";
+
+            case Request.Method.DELETE:
+                return "DELETE";
+
+            case Request.Method.POST:
+                return "POST";
+
+            case Request.Method.PUT:
+                return "PUT";
+
+            case Request.Method.HEAD:
+                return "HEAD";
+
+            case Request.Method.OPTIONS:
+                return "OPTIONS";
+
+            case Request.Method.TRACE:
+                return "TRACE";
+
+            case Request.Method.PATCH:
+                return "PATCH";
+
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package com.android.supervolley;
+
+import android.os.SystemClock;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.NoConnectionError;
+import com.android.volley.RetryPolicy;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Callback;
+
+/**
+ * Sends requests as asynchronous OkHttp calls instead of through the Volley network dispatchers.
+ * <p>
+ * Volley blocks one dispatcher thread per request, so no more than {@code threadPoolSize}
+ * requests are ever in flight, however many streams an HTTP/2 connection could carry. Here a
+ * {@link RequestScheduler} of its own admits up to {@code maxStreamsPerHost} requests per host,
+ * in the same priority and fairness order, and OkHttp multiplexes them over the host's
+ * connection. OkHttp honours the server's {@code SETTINGS_MAX_CONCURRENT_STREAMS}: requests
+ * beyond it wait for a stream or get a new connection.
+ * <p>
+ * Responses are delivered through {@link BaseRequest#deliverNetworkResponse}, the same path as
+ * a Volley response. Requests that use the Volley cache still go through Volley.
+ */
+final class MultiplexedDispatcher {
+    private final okhttp3.Call.Factory callFactory;
+    private final RequestScheduler scheduler;
+
+    MultiplexedDispatcher(okhttp3.Call.Factory callFactory, RequestScheduler scheduler) {
+        this.callFactory = callFactory;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Schedules {@code request} and returns true, or returns false if it must go through the
+     * Volley queue.
+     */
+    boolean dispatch(final BaseRequest request) {
+        if (request.shouldCache()) {
+            return false;
+        }
+        final String host = request.getHost();
+        scheduler.submit(host, request.getPriority(), new Runnable() {
+            @Override
+            public void run() {
+                if (request.isCanceled()) {
+                    scheduler.finished(host);
+                    return;
+                }
+                send(request, host);
+            }
+        });
+        return true;
+    }
+
+    private void send(final BaseRequest request, final String host) {
+        okhttp3.Request okHttpRequest;
+        try {
+            okHttpRequest = OkHttp3Stack.toOkHttpRequest(request,
+                    Collections.<String, String>emptyMap());
+        } catch (AuthFailureError e) {
+            finish(request, host, null, e);
+            return;
+        } catch (IOException | RuntimeException e) {
+            finish(request, host, null, new VolleyError(e));
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        final long attemptStart = SystemClock.elapsedRealtime();
+        final CallEvent callEvent = request.getCallEvent();
+        if (callEvent != null) {
+            request.getEventListener().networkStart(callEvent);
+        }
+        okhttp3.Call httpCall = callFactory.newCall(okHttpRequest);
+        request.attemptStarted(httpCall);
+        httpCall.enqueue(new Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                byte[] data;
+                try {
+                    data = response.body().bytes();
+                } catch (IOException e) {
+                    onFailure(call, e);
+                    return;
+                } finally {
+                    response.close();
+                }
+                long networkTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                int code = response.code();
+                if (callEvent != null) {
+                    BasicNetwork.networkEnd(request, code, data.length, attemptStart);
+                }
+                NetworkResponse networkResponse = new NetworkResponse(code, data,
+                        new HeaderView(response.headers()), code == 304, networkTimeMs);
+                if (code == 401 || code == 403) {
+                    retry(request, host, call, new AuthFailureError(networkResponse), "auth");
+                    return;
+                }
+                finish(request, host, networkResponse, null);
+            }
+
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                BasicNetwork.networkFailed(callEvent, request, e, attemptStart);
+                // Like BasicNetwork, only timeouts are retried: a connection that failed
+                // outright would most likely fail again.
+                if (e instanceof SocketTimeoutException) {
+                    retry(request, host, call, new TimeoutError(), "socket");
+                } else {
+                    finish(request, host, null, new NoConnectionError(e));
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends {@code request} again if its {@link RetryPolicy} allows another attempt after
+     * {@code error}, and fails it with the error otherwise.
+     */
+    private void retry(BaseRequest request, String host, okhttp3.Call call, VolleyError error,
+                       String reason) {
+        RetryPolicy retryPolicy = request.getRetryPolicy();
+        try {
+            if (retryPolicy == null || call.isCanceled()) {
+                throw error;
+            }
+            retryPolicy.retry(error);
+        } catch (VolleyError exhausted) {
+            finish(request, host, null, exhausted);
+            return;
+        }
+        CallEvent callEvent = request.getCallEvent();
+        if (callEvent != null) {
+            request.getEventListener().retry(callEvent, reason,
+                    retryPolicy.getCurrentRetryCount());
+        }
+        if (request.isCanceled()) {
+            scheduler.finished(host);
+            return;
+        }
+        // Retry in the slot this request already holds.
+        send(request, host);
+    }
+
+    private void finish(BaseRequest request, String host, NetworkResponse response,
+                        VolleyError error) {
+        scheduler.finished(host);
+        if (request.isCanceled()) {
+            return;
+        }
+        if (response != null) {
+            request.deliverNetworkResponse(response);
+        } else {
+            request.deliverError(error);
+        }
+    }
+}
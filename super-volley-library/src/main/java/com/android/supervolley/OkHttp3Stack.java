@@ -19,7 +19,7 @@ class OkHttp3Stack implements OkHttpStack {
     }
 
     @SuppressWarnings("deprecation")
-    private void setConnectionParametersForRequest(okhttp3.Request.Builder builder, Request<?> request)
+    private static void setConnectionParametersForRequest(okhttp3.Request.Builder builder, Request<?> request)
             throws IOException, AuthFailureError {
         switch (request.getMethod()) {
             case Request.Method.DEPRECATED_GET_OR_POST:
@@ -69,7 +69,7 @@ class OkHttp3Stack implements OkHttpStack {
         }
     }
 
-    private okhttp3.RequestBody createRequestBody(Request request) throws AuthFailureError {
+    private static okhttp3.RequestBody createRequestBody(Request request) throws AuthFailureError {
         if (request instanceof BaseRequest) {
             return ((BaseRequest) request).getRequestBody();
         }
@@ -85,21 +85,35 @@ class OkHttp3Stack implements OkHttpStack {
     @Override
     public okhttp3.Response performRequest(Request<?> request, Map<String, String> additionalHeaders)
             throws IOException, AuthFailureError {
+        okhttp3.Call call = client.newCall(toOkHttpRequest(request, additionalHeaders));
+        if (request instanceof BaseRequest) {
+            ((BaseRequest) request).attemptStarted(call);
+        }
+        return call.execute();
+    }
+
+    /**
+     * Translates a Volley {@code request} into the equivalent OkHttp request.
+     */
+    static okhttp3.Request toOkHttpRequest(Request<?> request, Map<String, String> additionalHeaders)
+            throws IOException, AuthFailureError {
         okhttp3.Request.Builder okHttpRequestBuilder = new okhttp3.Request.Builder();
 
-        Map<String, String> headers = request.getHeaders();
-        for (final String name : headers.keySet()) {
-            okHttpRequestBuilder.addHeader(name, headers.get(name));
+        if (request instanceof BaseRequest) {
+            // Keeps repeated headers, which the Map returned by getHeaders() can't hold.
+            okHttpRequestBuilder.headers(((BaseRequest) request).getRequestHeaders());
+        } else {
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                okHttpRequestBuilder.addHeader(header.getKey(), header.getValue());
+            }
         }
 
-        for (final String name : additionalHeaders.keySet()) {
-            okHttpRequestBuilder.addHeader(name, additionalHeaders.get(name));
+        for (Map.Entry<String, String> header : additionalHeaders.entrySet()) {
+            okHttpRequestBuilder.addHeader(header.getKey(), header.getValue());
         }
 
         setConnectionParametersForRequest(okHttpRequestBuilder, request);
 
-        okhttp3.Request okhttp3Request = okHttpRequestBuilder.url(request.getUrl()).build();
-
-        return client.newCall(okhttp3Request).execute();
+        return okHttpRequestBuilder.url(request.getUrl()).build();
     }
 }
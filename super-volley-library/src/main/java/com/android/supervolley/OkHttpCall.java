@@ -0,0 +1,287 @@
+package com.android.supervolley;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Request;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import okhttp3.ResponseBody;
+
+/**
+ * A {@link Call} which bypasses the Volley queue and runs directly on the OkHttp call factory.
+ * Volley reads every response body into memory before delivering it; this call hands the live
+ * response body to the converter instead, which is what
+ * {@link com.android.supervolley.annotation.Streaming @Streaming} methods need.
+ */
+final class OkHttpCall<T> implements Call<T> {
+    private final ServiceMethod<T, ?> serviceMethod;
+    private final Object[] args;
+    private final okhttp3.Call.Factory callFactory;
+
+    private volatile boolean canceled;
+
+    // All guarded by this.
+    private BaseRequest request;
+    private okhttp3.Call rawCall;
+    private Throwable creationFailure; // Either a RuntimeException or IOException.
+    private boolean executed;
+
+    OkHttpCall(ServiceMethod<T, ?> serviceMethod, Object[] args, okhttp3.Call.Factory callFactory) {
+        this.serviceMethod = serviceMethod;
+        this.args = args;
+        this.callFactory = callFactory;
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    // We are a final type & this saves clearing state.
+    @Override
+    public Call<T> clone() {
+        return new OkHttpCall<>(serviceMethod, args, callFactory);
+    }
+
+    @Override
+    public synchronized Request request() {
+        if (request != null) {
+            return request;
+        }
+        try {
+            createRawCall();
+            return request;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create request.", e);
+        }
+    }
+
+    @Override
+    public synchronized boolean isExecuted() {
+        return executed;
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+
+        okhttp3.Call call;
+        synchronized (this) {
+            call = rawCall;
+        }
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    @Override
+    public boolean isCanceled() {
+        if (canceled) {
+            return true;
+        }
+        synchronized (this) {
+            return rawCall != null && rawCall.isCanceled();
+        }
+    }
+
+    @Override
+    public void enqueue(final Callback<T> callback) {
+        if (callback == null) throw new NullPointerException("callback == null");
+
+        okhttp3.Call call;
+        final BaseRequest baseRequest;
+        Throwable failure = null;
+
+        synchronized (this) {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+
+            try {
+                call = createRawCall();
+            } catch (Throwable t) {
+                call = null;
+                failure = t;
+            }
+            baseRequest = request;
+        }
+
+        if (failure != null) {
+            callback.onFailure(this, failure);
+            return;
+        }
+
+        if (canceled) {
+            call.cancel();
+        }
+
+        call.enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response rawResponse) {
+                Response<T> response;
+                try {
+                    response = parseResponse(baseRequest, call, rawResponse);
+                } catch (Throwable e) {
+                    callFailure(e);
+                    return;
+                }
+                try {
+                    callback.onResponse(OkHttpCall.this, response);
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                callFailure(e);
+            }
+
+            private void callFailure(Throwable e) {
+                try {
+                    callback.onFailure(OkHttpCall.this, e);
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Response<T> execute() throws IOException {
+        okhttp3.Call call;
+        BaseRequest baseRequest;
+
+        synchronized (this) {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+            call = createRawCall();
+            baseRequest = request;
+        }
+
+        if (canceled) {
+            call.cancel();
+        }
+
+        return parseResponse(baseRequest, call, call.execute());
+    }
+
+    private okhttp3.Call createRawCall() throws IOException {
+        if (rawCall != null) {
+            return rawCall;
+        }
+        if (creationFailure != null) {
+            if (creationFailure instanceof IOException) {
+                throw (IOException) creationFailure;
+            }
+            throw (RuntimeException) creationFailure;
+        }
+        try {
+            BaseRequest baseRequest = (BaseRequest) serviceMethod.toRequest(args);
+            okhttp3.Request okHttpRequest = OkHttp3Stack.toOkHttpRequest(baseRequest,
+                    Collections.<String, String>emptyMap());
+            DownloadTarget downloadTarget = baseRequest.getDownloadTarget();
+            if (downloadTarget != null && downloadTarget.usesRanges()) {
+                okHttpRequest = RangeDownloader.probe(okHttpRequest, downloadTarget);
+            }
+            okhttp3.Call call = callFactory.newCall(okHttpRequest);
+            if (call == null) {
+                throw new NullPointerException("Call.Factory returned null.");
+            }
+            request = baseRequest;
+            return (rawCall = call);
+        } catch (AuthFailureError e) {
+            creationFailure = new IOException(e);
+            throw (IOException) creationFailure;
+        } catch (IOException | RuntimeException e) {
+            creationFailure = e;
+            throw e;
+        }
+    }
+
+    private Response<T> parseResponse(BaseRequest baseRequest, okhttp3.Call call,
+                                      okhttp3.Response rawResponse) throws IOException {
+        int code = rawResponse.code();
+        baseRequest.setNetworkResult(code, new HeaderView(rawResponse.headers()));
+        HttpResponse.Builder builder = new HttpResponse.Builder()
+                .code(code)
+                .message(rawResponse.message())
+                .request(baseRequest);
+
+        ResponseBody rawBody = rawResponse.body();
+        DownloadTarget downloadTarget = baseRequest.getDownloadTarget();
+        if (downloadTarget != null && downloadTarget.usesRanges()
+                && RangeDownloader.isEmptyResource(rawResponse)) {
+            // The probe for the first byte of an empty resource can't be satisfied.
+            rawBody.close();
+            RangeDownloader.discard(downloadTarget);
+            File file = FileDownloader.download(downloadTarget,
+                    ResponseBody.create(null, new byte[0]));
+            @SuppressWarnings("unchecked") // The response type of a @Destination method is File.
+            T body = (T) file;
+            return Response.success(body, serviceMethod.retain(builder.success(true).build()));
+        }
+        if (code < 200 || code >= 300) {
+            try {
+                // Buffer the entire body to avoid future I/O.
+                ResponseBody bufferedBody = Utils.buffer(rawBody);
+                String raw = bufferedBody.source().buffer().clone().readUtf8();
+                return Response.error(bufferedBody,
+                        serviceMethod.retain(builder.raw(raw).success(false).build()));
+            } finally {
+                rawBody.close();
+            }
+        }
+
+        HttpResponse response = serviceMethod.retain(builder.success(true).build());
+        if (downloadTarget != null) {
+            File file;
+            if (downloadTarget.usesRanges() && code == 206) {
+                file = RangeDownloader.download(downloadTarget, callFactory, call, rawResponse);
+            } else {
+                if (downloadTarget.usesRanges()) {
+                    // No range support, or the resource changed since the last attempt.
+                    RangeDownloader.discard(downloadTarget);
+                }
+                file = FileDownloader.download(downloadTarget, rawBody);
+            }
+            @SuppressWarnings("unchecked") // The response type of a @Destination method is File.
+            T body = (T) file;
+            return Response.success(body, response);
+        }
+        if (code == 204 || code == 205) {
+            rawBody.close();
+            return Response.success(null, response);
+        }
+
+        if (serviceMethod.elementConverter != null) {
+            ServerEventStream.Format format = ServerEventStream.formatOf(rawBody.contentType());
+            if (format != null) {
+                @SuppressWarnings("unchecked") // The response type is EventStream or ElementStream.
+                T body = (T) new ServerEventStream<>(format, rawBody,
+                        serviceMethod.elementConverter, connector(call.request()));
+                return Response.success(body, response);
+            }
+        }
+
+        try {
+            T body = serviceMethod.toResponse(baseRequest, rawBody);
+            return Response.success(body, response);
+        } catch (IOException | RuntimeException e) {
+            rawBody.close();
+            throw e;
+        }
+    }
+
+    private ServerEventStream.Connector connector(final okhttp3.Request request) {
+        return new ServerEventStream.Connector() {
+            @Override
+            public okhttp3.Response connect(String lastEventId) throws IOException {
+                okhttp3.Request.Builder builder = request.newBuilder();
+                if (lastEventId != null) {
+                    builder.header("Last-Event-ID", lastEventId);
+                }
+                return callFactory.newCall(builder.build()).execute();
+            }
+        };
+    }
+}
@@ -1,10 +1,13 @@
 package com.android.supervolley;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.net.URLConnection;
 import java.util.Map;
 
 import okhttp3.Headers;
+import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 
@@ -229,6 +232,34 @@ abstract class ParameterHandler<T> {
         }
     }
 
+    static final class FilePart extends ParameterHandler<File> {
+        private final String name;
+        private final String transferEncoding;
+
+        FilePart(String name, String transferEncoding) {
+            this.name = Utils.checkNotNull(name, "name == null");
+            this.transferEncoding = transferEncoding;
+        }
+
+        @Override
+        void apply(RequestBuilder builder, File value) {
+            if (value == null) return; // Skip null values.
+
+            String contentType = URLConnection.guessContentTypeFromName(value.getName());
+            MediaType mediaType = MediaType.parse(
+                    contentType != null ? contentType : "application/octet-stream");
+            Headers headers = Headers.of(
+                    "Content-Disposition", "form-data; name=\"" + quote(name)
+                            + "\"; filename=\"" + quote(value.getName()) + "\"",
+                    "Content-Transfer-Encoding", transferEncoding);
+            builder.addPart(headers, StreamingRequestBody.create(mediaType, value));
+        }
+
+        private static String quote(String value) {
+            return value.replace("\n", "%0A").replace("\r", "%0D").replace("\"", "%22");
+        }
+    }
+
     static final class RawPart extends ParameterHandler<MultipartBody.Part> {
         static final RawPart INSTANCE = new RawPart();
 
@@ -299,4 +330,16 @@ abstract class ParameterHandler<T> {
             builder.setBody(body);
         }
     }
+
+    static final class Destination extends ParameterHandler<Object> {
+        @Override
+        void apply(RequestBuilder builder, Object value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Destination parameter value must not be null.");
+            }
+            builder.setDownloadTarget(value instanceof DownloadTarget
+                    ? (DownloadTarget) value
+                    : new DownloadTarget.Builder((File) value).build());
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package com.android.supervolley;
+
+import android.os.SystemClock;
+
+import com.android.volley.NetworkResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * A {@link NetworkResponse} whose {@link #data} is a buffer borrowed from a
+ * {@link ResponseBufferPool}. Only the first {@link #length} bytes are the body. The consumer
+ * must call {@link #release()} once it no longer needs the data; see
+ * {@link BaseRequest#releaseResponseBody}. A buffer that is never released, such as that of a
+ * request canceled before delivery, is simply left to the garbage collector.
+ */
+final class PooledNetworkResponse extends NetworkResponse {
+    final int length;
+    private final ResponseBufferPool pool;
+
+    private PooledNetworkResponse(ResponseBufferPool pool, byte[] buffer, int length,
+                                  int statusCode, Map<String, String> headers,
+                                  long networkTimeMs) {
+        super(statusCode, buffer, headers, false, networkTimeMs);
+        this.pool = pool;
+        this.length = length;
+    }
+
+    /**
+     * Reads {@code body} into a pooled buffer, or returns null, leaving the body untouched, if it
+     * is too large to be pooled.
+     */
+    static PooledNetworkResponse read(ResponseBufferPool pool, int statusCode,
+                                      Map<String, String> headers, ResponseBody body,
+                                      long requestStart) throws IOException {
+        long contentLength = body.contentLength();
+        if (contentLength > ResponseBufferPool.maxBufferSize()) {
+            return null;
+        }
+        byte[] buffer = pool.acquire(contentLength >= 0 ? (int) contentLength : 0);
+        int length = 0;
+        BufferedSource source = body.source();
+        try {
+            while (true) {
+                if (length == buffer.length) {
+                    byte[] larger = pool.acquire(buffer.length * 2);
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    pool.release(buffer);
+                    buffer = larger;
+                }
+                int read = source.read(buffer, length, buffer.length - length);
+                if (read == -1) break;
+                length += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            pool.release(buffer);
+            throw e;
+        } finally {
+            body.close();
+        }
+        return new PooledNetworkResponse(pool, buffer, length, statusCode, headers,
+                SystemClock.elapsedRealtime() - requestStart);
+    }
+
+    void release() {
+        pool.release(data);
+    }
+}
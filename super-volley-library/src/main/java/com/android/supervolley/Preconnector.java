@@ -0,0 +1,43 @@
+package com.android.supervolley;
+
+import com.android.volley.VolleyLog;
+
+import java.io.IOException;
+
+import okhttp3.Callback;
+import okhttp3.Request;
+
+/**
+ * Opens connections to a host ahead of the first real request. OkHttp has no API to open an idle
+ * connection, so this sends concurrent {@code HEAD} requests and discards their responses; each
+ * one resolves the host, connects and completes the TLS handshake, including certificate
+ * validation, and then leaves its connection idle in the shared pool.
+ */
+final class Preconnector {
+    private Preconnector() {
+        // No instances.
+    }
+
+    static void preconnect(okhttp3.Call.Factory callFactory, okhttp3.HttpUrl url,
+                           int connections) {
+        Request request = new Request.Builder()
+                .url(url)
+                .head()
+                .header("Cache-Control", "no-cache")
+                .build();
+        for (int i = 0; i < connections; i++) {
+            callFactory.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                    // Any status will do: the connection is what we were after.
+                    response.close();
+                }
+
+                @Override
+                public void onFailure(okhttp3.Call call, IOException e) {
+                    VolleyLog.d("Preconnect to %s failed: %s", call.request().url(), e);
+                }
+            });
+        }
+    }
+}
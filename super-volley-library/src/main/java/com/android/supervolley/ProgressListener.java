@@ -0,0 +1,13 @@
+package com.android.supervolley;
+
+/**
+ * Receives the progress of a body being transferred. Invoked on the thread performing the I/O, so
+ * implementations should return quickly.
+ */
+public interface ProgressListener {
+    /**
+     * @param bytesTransferred bytes transferred so far.
+     * @param contentLength total length of the body, or -1 if it isn't known.
+     */
+    void onProgress(long bytesTransferred, long contentLength);
+}
@@ -0,0 +1,466 @@
+package com.android.supervolley;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.HashingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Downloads a {@link DownloadTarget} as byte ranges. The call is first sent as a probe for
+ * {@code bytes=0-0}; a {@code 206} answer gives the total length and validator, after which the
+ * ranges still missing are fetched concurrently and written at their offsets with positional
+ * {@link FileChannel} writes. The ranges are executed synchronously on a small shared pool of
+ * threads rather than enqueued, because the probe of an enqueued call holds a slot of the OkHttp
+ * dispatcher while it waits for them. Progress of a resumable download is checkpointed to a state
+ * file next to the target so that it can be continued with {@code If-Range} after a crash.
+ */
+final class RangeDownloader {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final long CHECKPOINT_BYTES = 4 * 1024 * 1024;
+    // Segments fetched at once across all downloads; the rest wait for a thread.
+    private static final int MAX_CONCURRENT_SEGMENTS = 8;
+    private static final Pattern CONTENT_RANGE =
+            Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern EMPTY_CONTENT_RANGE =
+            Pattern.compile("bytes\\s+\\*/0", Pattern.CASE_INSENSITIVE);
+
+    private static final Executor SEGMENT_EXECUTOR;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_SEGMENTS,
+                MAX_CONCURRENT_SEGMENTS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "SuperVolley Range Downloader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        SEGMENT_EXECUTOR = executor;
+    }
+
+    /**
+     * Turns {@code request} into a probe for the first byte of the body, validated against the
+     * state of an earlier attempt if there is one.
+     */
+    static okhttp3.Request probe(okhttp3.Request request, DownloadTarget target) {
+        okhttp3.Request.Builder builder = rangeRequest(request, 0, 0);
+        State state = target.resumable ? State.read(stateFile(target.file)) : null;
+        if (state != null) {
+            builder.header("If-Range", state.validator);
+        }
+        return builder.build();
+    }
+
+    /**
+     * True if {@code response} is the {@code 416} a server answers the probe with when the
+     * resource is empty, which has no first byte to return.
+     */
+    static boolean isEmptyResource(okhttp3.Response response) {
+        return response.code() == 416 && EMPTY_CONTENT_RANGE.matcher(
+                String.valueOf(response.header("Content-Range"))).matches();
+    }
+
+    /**
+     * Deletes what is left of an earlier attempt, when the server answered the probe with the
+     * whole body.
+     */
+    static void discard(DownloadTarget target) {
+        //noinspection ResultOfMethodCallIgnored
+        stateFile(target.file).delete();
+    }
+
+    static File download(DownloadTarget target, okhttp3.Call.Factory callFactory,
+                         okhttp3.Call probeCall, okhttp3.Response probe) throws IOException {
+        probe.body().close();
+        okhttp3.Request request = probeCall.request().newBuilder()
+                .removeHeader("Range")
+                .removeHeader("If-Range")
+                .build();
+
+        long length = -1;
+        Matcher matcher = CONTENT_RANGE.matcher(String.valueOf(probe.header("Content-Range")));
+        if (matcher.matches() && !"*".equals(matcher.group(3))) {
+            length = Long.parseLong(matcher.group(3));
+        }
+        if (length == -1) {
+            // Without a length the body can't be split; fetch it in one piece.
+            discard(target);
+            okhttp3.Response response = callFactory.newCall(request).execute();
+            if (!response.isSuccessful()) {
+                response.close();
+                throw new IOException("HTTP " + response.code() + " " + response.message());
+            }
+            return FileDownloader.download(target, response.body());
+        }
+
+        String validator = validatorOf(probe);
+        boolean persist = target.resumable && validator != null;
+        File partial = FileDownloader.partialFile(target.file);
+        File stateFile = stateFile(target.file);
+
+        State state = persist ? State.read(stateFile) : null;
+        if (state == null || !state.validator.equals(validator) || state.length != length
+                || !partial.exists()) {
+            state = State.plan(validator, length, target.segments);
+            //noinspection ResultOfMethodCallIgnored
+            partial.delete();
+        }
+
+        boolean success = false;
+        RandomAccessFile file = new RandomAccessFile(partial, "rw");
+        try {
+            file.setLength(length);
+            RangeDownloader downloader = new RangeDownloader(target, callFactory, probeCall,
+                    request, file.getChannel(), state, persist ? stateFile : null);
+            downloader.run();
+            file.getChannel().force(false);
+            success = true;
+        } finally {
+            FileDownloader.closeQuietly(file);
+            if (!success && !persist) {
+                //noinspection ResultOfMethodCallIgnored
+                partial.delete();
+            }
+        }
+
+        if (target.digestAlgorithm != null) {
+            verifyDigest(target, partial);
+        }
+        FileDownloader.replace(partial, target.file);
+        //noinspection ResultOfMethodCallIgnored
+        stateFile.delete();
+        return target.file;
+    }
+
+    private final DownloadTarget target;
+    private final okhttp3.Call.Factory callFactory;
+    private final okhttp3.Call probeCall;
+    private final okhttp3.Request request;
+    private final FileChannel channel;
+    private final State state;
+    private final File stateFile;
+    private final List<okhttp3.Call> calls = new ArrayList<>();
+
+    // All guarded by this.
+    private long transferred;
+    private long unsaved;
+    private IOException failure;
+
+    private RangeDownloader(DownloadTarget target, okhttp3.Call.Factory callFactory,
+                            okhttp3.Call probeCall, okhttp3.Request request, FileChannel channel,
+                            State state, File stateFile) {
+        this.target = target;
+        this.callFactory = callFactory;
+        this.probeCall = probeCall;
+        this.request = request;
+        this.channel = channel;
+        this.state = state;
+        this.stateFile = stateFile;
+        for (Segment segment : state.segments) {
+            transferred += segment.written;
+        }
+    }
+
+    private void run() throws IOException {
+        List<Segment> remaining = new ArrayList<>();
+        for (Segment segment : state.segments) {
+            if (segment.start + segment.written < segment.end) {
+                remaining.add(segment);
+            }
+        }
+        checkpoint();
+
+        final CountDownLatch latch = new CountDownLatch(remaining.size());
+        synchronized (this) {
+            for (final Segment segment : remaining) {
+                okhttp3.Request.Builder builder =
+                        rangeRequest(request, segment.start + segment.written, segment.end - 1);
+                if (state.validator != null) {
+                    builder.header("If-Range", state.validator);
+                }
+                final okhttp3.Call call = callFactory.newCall(builder.build());
+                calls.add(call);
+                SEGMENT_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            fetch(segment, call);
+                        } catch (IOException e) {
+                            fail(e);
+                        } catch (RuntimeException e) {
+                            fail(new IOException(e));
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+        }
+
+        try {
+            while (!latch.await(200, TimeUnit.MILLISECONDS)) {
+                if (probeCall.isCanceled()) {
+                    fail(new IOException("Canceled"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new InterruptedIOException("interrupted"));
+        }
+
+        synchronized (this) {
+            checkpoint();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void fetch(Segment segment, okhttp3.Call call) throws IOException {
+        okhttp3.Response response = call.execute();
+        try {
+            write(segment, response);
+        } finally {
+            response.close();
+        }
+    }
+
+    private void write(Segment segment, okhttp3.Response response) throws IOException {
+        long position = segment.start + segment.written;
+        if (response.code() != 206) {
+            throw new IOException("Expected a partial response for bytes " + position + "-"
+                    + (segment.end - 1) + " but was HTTP " + response.code()
+                    + "; the resource may have changed.");
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(String.valueOf(response.header("Content-Range")));
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) != position) {
+            throw new IOException("Unexpected Content-Range: " + response.header("Content-Range"));
+        }
+
+        BufferedSource source = response.body().source();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (position < segment.end) {
+            int read = source.read(chunk, 0, (int) Math.min(chunk.length, segment.end - position));
+            if (read == -1) {
+                throw new EOFException("Range ended at " + position + ", expected "
+                        + segment.end);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (!advance(segment, read)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records {@code count} bytes written to {@code segment}. Returns false if the download has
+     * failed and the segment should stop.
+     */
+    private synchronized boolean advance(Segment segment, long count) throws IOException {
+        if (failure != null) {
+            return false;
+        }
+        segment.written += count;
+        transferred += count;
+        unsaved += count;
+        if (target.progressListener != null) {
+            target.progressListener.onProgress(transferred, state.length);
+        }
+        if (unsaved >= CHECKPOINT_BYTES) {
+            checkpoint();
+        }
+        return true;
+    }
+
+    private synchronized void fail(IOException e) {
+        if (failure != null) {
+            return;
+        }
+        failure = e;
+        for (okhttp3.Call call : calls) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Makes the bytes written so far durable, then records them in the state file.
+     */
+    private synchronized void checkpoint() throws IOException {
+        unsaved = 0;
+        if (stateFile == null) {
+            return;
+        }
+        channel.force(false);
+        state.write(stateFile);
+    }
+
+    private static okhttp3.Request.Builder rangeRequest(okhttp3.Request request, long from, long to) {
+        return request.newBuilder()
+                .header("Range", "bytes=" + from + "-" + to)
+                // Ranges must address the stored bytes, not a transparently gzipped encoding.
+                .header("Accept-Encoding", "identity");
+    }
+
+    /**
+     * Returns a validator usable with {@code If-Range}: a strong entity tag, else the
+     * modification date.
+     */
+    private static String validatorOf(okhttp3.Response response) {
+        String etag = response.header("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.header("Last-Modified");
+    }
+
+    private static File stateFile(File file) {
+        return new File(file.getPath() + ".part.state");
+    }
+
+    private static void verifyDigest(DownloadTarget target, File file) throws IOException {
+        Source fileSource = Okio.source(file);
+        HashingSource source;
+        switch (target.digestAlgorithm) {
+            case "MD5":
+                source = HashingSource.md5(fileSource);
+                break;
+            case "SHA-1":
+                source = HashingSource.sha1(fileSource);
+                break;
+            default:
+                source = HashingSource.sha256(fileSource);
+                break;
+        }
+        try {
+            Buffer buffer = new Buffer();
+            while (source.read(buffer, CHUNK_SIZE) != -1) {
+                buffer.clear();
+            }
+        } finally {
+            source.close();
+        }
+        if (!source.hash().equals(target.expectedDigest)) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            throw new IOException(target.digestAlgorithm + " mismatch: expected "
+                    + target.expectedDigest.hex() + " but was " + source.hash().hex());
+        }
+    }
+
+    private static final class Segment {
+        final long start;
+        final long end; // Exclusive.
+        long written;
+
+        Segment(long start, long end, long written) {
+            this.start = start;
+            this.end = end;
+            this.written = written;
+        }
+    }
+
+    /**
+     * The validator, length and per-segment progress of a download, stored as lines of text.
+     */
+    private static final class State {
+        final String validator;
+        final long length;
+        final List<Segment> segments;
+
+        State(String validator, long length, List<Segment> segments) {
+            this.validator = validator;
+            this.length = length;
+            this.segments = segments;
+        }
+
+        static State plan(String validator, long length, int count) {
+            long maxCount = Math.max(1, (length + MIN_SEGMENT_SIZE - 1) / MIN_SEGMENT_SIZE);
+            int n = (int) Math.min(count, maxCount);
+            long size = length / n;
+            List<Segment> segments = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                long start = i * size;
+                long end = i == n - 1 ? length : start + size;
+                segments.add(new Segment(start, end, 0));
+            }
+            return new State(validator, length, segments);
+        }
+
+        /**
+         * Returns the state stored in {@code file}, or null if there is none or it is unreadable.
+         */
+        static State read(File file) {
+            if (!file.exists()) {
+                return null;
+            }
+            BufferedSource source = null;
+            try {
+                source = Okio.buffer(Okio.source(file));
+                String validator = source.readUtf8LineStrict();
+                long length = Long.parseLong(source.readUtf8LineStrict());
+                List<Segment> segments = new ArrayList<>();
+                for (String line; (line = source.readUtf8Line()) != null; ) {
+                    String[] fields = line.split(" ");
+                    segments.add(new Segment(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2])));
+                }
+                return segments.isEmpty() ? null : new State(validator, length, segments);
+            } catch (IOException | RuntimeException e) {
+                return null;
+            } finally {
+                if (source != null) {
+                    FileDownloader.closeQuietly(source);
+                }
+            }
+        }
+
+        /**
+         * Writes this state to a temporary file and renames it over {@code file}, so a crash never
+         * leaves a torn state behind.
+         */
+        void write(File file) throws IOException {
+            File temp = new File(file.getPath() + ".tmp");
+            BufferedSink sink = Okio.buffer(Okio.sink(temp));
+            try {
+                sink.writeUtf8(validator).writeByte('\n');
+                sink.writeUtf8(Long.toString(length)).writeByte('\n');
+                for (Segment segment : segments) {
+                    sink.writeUtf8(segment.start + " " + segment.end + " " + segment.written)
+                            .writeByte('\n');
+                }
+            } finally {
+                sink.close();
+            }
+            if (!temp.renameTo(file)) {
+                FileDownloader.replace(temp, file);
+            }
+        }
+    }
+}
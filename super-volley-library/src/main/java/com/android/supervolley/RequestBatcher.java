@@ -0,0 +1,201 @@
+package com.android.supervolley;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.VolleyError;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Collects {@link com.android.supervolley.annotation.Batchable batchable} requests for a short
+ * window and sends them as one request to the batch endpoint. The batch response is split by the
+ * {@link BatchCodec} and every part is delivered through its original request, exactly as if it
+ * had been received from the network.
+ */
+final class RequestBatcher {
+    private final okhttp3.HttpUrl endpoint;
+    private final BatchCodec codec;
+    private final RequestQueue requestQueue;
+    private final RequestScheduler scheduler;
+    private final ScheduledExecutorService timer;
+
+    // All guarded by this.
+    private List<BaseRequest> pending = new ArrayList<>();
+    private int maxSize = Integer.MAX_VALUE;
+    private long flushAt;
+    private ScheduledFuture<?> flushTask;
+
+    RequestBatcher(okhttp3.HttpUrl endpoint, BatchCodec codec, RequestQueue requestQueue,
+                   RequestScheduler scheduler) {
+        this.endpoint = endpoint;
+        this.codec = codec;
+        this.requestQueue = requestQueue;
+        this.scheduler = scheduler;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SuperVolley Batcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    void enqueue(BaseRequest request, int windowMillis, int maxSize) {
+        List<BaseRequest> batch = null;
+        synchronized (this) {
+            pending.add(request);
+            this.maxSize = Math.min(this.maxSize, maxSize);
+            if (pending.size() >= this.maxSize) {
+                batch = drain();
+            } else {
+                long deadline = System.currentTimeMillis() + windowMillis;
+                if (flushTask == null || deadline < flushAt) {
+                    if (flushTask != null) {
+                        flushTask.cancel(false);
+                    }
+                    flushAt = deadline;
+                    flushTask = timer.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            flush();
+                        }
+                    }, windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    private void flush() {
+        List<BaseRequest> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    private List<BaseRequest> drain() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        List<BaseRequest> batch = pending;
+        pending = new ArrayList<>();
+        maxSize = Integer.MAX_VALUE;
+        return batch;
+    }
+
+    private void dispatch(List<BaseRequest> drained) {
+        final List<BaseRequest> batch = new ArrayList<>(drained.size());
+        for (BaseRequest request : drained) {
+            // Volley drops canceled requests without delivering them; do the same.
+            if (!request.isCanceled()) {
+                batch.add(request);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            // Nothing to merge with, send the request as is.
+            scheduler.enqueue(requestQueue, batch.get(0));
+            return;
+        }
+
+        List<BatchCodec.Part> parts = new ArrayList<>(batch.size());
+        BaseRequest batchRequest = new BaseRequest(Request.Method.POST, endpoint.toString());
+        try {
+            for (BaseRequest request : batch) {
+                parts.add(new BatchCodec.Part(MethodHelper.methodName(request.getMethod()),
+                        request.getUrl(), request.getHeaders(), request.getRequestBody()));
+            }
+            batchRequest.addBody(codec.encode(parts));
+        } catch (IOException | RuntimeException e) {
+            failAll(batch, new VolleyError("Unable to encode batch.", e));
+            return;
+        }
+
+        batchRequest.setRetryPolicy(new NoRetryPolicy());
+        batchRequest.setShouldCache(false);
+        batchRequest.setPriority(highestPriority(batch));
+        batchRequest.setResponseListener(new SplittingListener(batch, batchRequest));
+        scheduler.enqueue(requestQueue, batchRequest);
+    }
+
+    private static Request.Priority highestPriority(List<BaseRequest> batch) {
+        Request.Priority priority = Request.Priority.LOW;
+        for (BaseRequest request : batch) {
+            if (request.getPriority().ordinal() > priority.ordinal()) {
+                priority = request.getPriority();
+            }
+        }
+        return priority;
+    }
+
+    private static void failAll(List<BaseRequest> batch, VolleyError error) {
+        for (BaseRequest request : batch) {
+            if (!request.isCanceled()) { // Volley delivers nothing for a canceled request.
+                request.deliverError(error);
+            }
+        }
+    }
+
+    private final class SplittingListener extends ResponseListener {
+        private final List<BaseRequest> batch;
+        private final BaseRequest batchRequest;
+
+        SplittingListener(List<BaseRequest> batch, BaseRequest batchRequest) {
+            this.batch = batch;
+            this.batchRequest = batchRequest;
+        }
+
+        @Override
+        protected void onSuccess(HttpResponse.Builder builder) {
+            List<BatchCodec.Result> results;
+            try {
+                // Split the bytes as received; decoding a multipart body as text corrupts binary parts.
+                results = codec.decode(batchRequest.responseBody());
+            } catch (IOException | RuntimeException e) {
+                failAll(batch, new ParseError(e));
+                return;
+            } finally {
+                batchRequest.releaseResponseBody(null);
+            }
+            if (results == null || results.size() != batch.size()) {
+                failAll(batch, new ParseError(new IOException("Batch response has "
+                        + (results == null ? 0 : results.size()) + " parts, expected "
+                        + batch.size())));
+                return;
+            }
+            for (int i = 0, size = batch.size(); i < size; i++) {
+                BaseRequest request = batch.get(i);
+                if (request.isCanceled()) {
+                    continue; // Volley delivers nothing for a canceled request.
+                }
+                BatchCodec.Result result = results.get(i);
+                Map<String, String> headers = result.headers();
+                request.deliverNetworkResponse(new NetworkResponse(result.code(),
+                        result.body() != null ? result.body() : new byte[0], headers, false));
+            }
+        }
+
+        @Override
+        void onFailure(VolleyError payload) {
+            failAll(batch, payload);
+        }
+    }
+}
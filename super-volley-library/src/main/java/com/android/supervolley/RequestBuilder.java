@@ -5,8 +5,6 @@ import com.android.volley.Request;
 import com.android.volley.RetryPolicy;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import okhttp3.FormBody;
 import okhttp3.Headers;
@@ -27,7 +25,7 @@ final class RequestBuilder {
     private String relativeUrl;
     private okhttp3.HttpUrl.Builder urlBuilder;
 
-    private Map<String, String> headers;
+    private Headers.Builder headers;
     private RetryPolicy retryPolicy;
     private Request.Priority priority;
     private String tag;
@@ -39,9 +37,11 @@ final class RequestBuilder {
     private MultipartBody.Builder multipartBuilder;
     private FormBody.Builder formBuilder;
     private RequestBody body;
+    private DownloadTarget downloadTarget;
+    private RequestCompression compression;
 
     RequestBuilder() {
-        headers = new HashMap<>();
+        headers = new Headers.Builder();
         shouldCache = false;
         hasBody = false;
     }
@@ -61,8 +61,8 @@ final class RequestBuilder {
         return this;
     }
 
-    RequestBuilder headers(Map<String, String> headers) {
-        this.headers = headers;
+    RequestBuilder headers(Headers headers) {
+        this.headers = headers.newBuilder();
         return this;
     }
 
@@ -113,6 +113,11 @@ final class RequestBuilder {
         return this;
     }
 
+    RequestBuilder compression(RequestCompression compression) {
+        this.compression = compression;
+        return this;
+    }
+
     void setRelativeUrl(Object relativeUrl) {
         if (relativeUrl == null) throw new NullPointerException("@Url parameter is null.");
         this.relativeUrl = relativeUrl.toString();
@@ -126,7 +131,7 @@ final class RequestBuilder {
             }
             contentType = type;
         } else {
-            headers.put(name, value);
+            headers.add(name, value);
         }
     }
 
@@ -225,7 +230,11 @@ final class RequestBuilder {
         this.body = body;
     }
 
-    Request build() {
+    void setDownloadTarget(DownloadTarget downloadTarget) {
+        this.downloadTarget = downloadTarget;
+    }
+
+    Request build() throws IOException {
         okhttp3.HttpUrl url;
         okhttp3.HttpUrl.Builder urlBuilder = this.urlBuilder;
         if (urlBuilder != null) {
@@ -253,11 +262,13 @@ final class RequestBuilder {
         }
 
         BaseRequest request = new BaseRequest(method, url.toString());
+        request.setHost(url.host());
         request.setPriority(priority);
         request.setRetryPolicy(retryPolicy);
         request.setShouldCache(shouldCache);
         request.setTag(tag);
-        request.addHeaders(headers);
+        request.setHeaders(headers.build());
+        request.setDownloadTarget(downloadTarget);
 
         MediaType contentType = this.contentType;
         if (contentType != null) {
@@ -269,6 +280,10 @@ final class RequestBuilder {
         }
 
         if (body != null) {
+            if (compression != null && compression.shouldCompress(body)) {
+                body = compression.compress(body);
+                request.addHeader("Content-Encoding", compression.encoding());
+            }
             request.addBody(body);
         }
 
@@ -0,0 +1,122 @@
+package com.android.supervolley;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Compresses request bodies with a {@code Content-Encoding} the server understands. Set a default
+ * for all methods with {@link SuperVolley.Builder#requestCompression(RequestCompression)}, or
+ * choose per method with {@link com.android.supervolley.annotation.Gzip @Gzip} and
+ * {@link com.android.supervolley.annotation.Deflate @Deflate}.
+ * <p>
+ * Bodies are compressed while they are written, so nothing is buffered, and again on every retry.
+ * Bodies known to be shorter than the minimum size are sent as is.
+ */
+public final class RequestCompression {
+    /**
+     * Bodies shorter than this are not worth compressing by default.
+     */
+    public static final int DEFAULT_MIN_SIZE = 1024;
+
+    /**
+     * Compresses bodies of at least {@code minSize} bytes with {@code gzip}.
+     */
+    public static RequestCompression gzip(int minSize) {
+        return new RequestCompression("gzip", minSize, null);
+    }
+
+    /**
+     * Compresses bodies of at least {@code minSize} bytes with {@code deflate}.
+     */
+    public static RequestCompression deflate(int minSize) {
+        return new RequestCompression("deflate", minSize, null);
+    }
+
+    /**
+     * Compresses bodies of at least {@code minSize} bytes with {@code deflate}, using
+     * {@code dictionary} as the preset dictionary. Small payloads which share their field names and
+     * common values with the dictionary compress far better than on their own. The server must
+     * inflate with the same dictionary, which it can identify by the Adler-32 checksum in the
+     * stream header.
+     */
+    public static RequestCompression deflate(int minSize, byte[] dictionary) {
+        Utils.checkNotNull(dictionary, "dictionary == null");
+        return new RequestCompression("deflate", minSize, dictionary.clone());
+    }
+
+    private final String encoding;
+    private final int minSize;
+    private final byte[] dictionary;
+
+    private RequestCompression(String encoding, int minSize, byte[] dictionary) {
+        if (minSize < 0) throw new IllegalArgumentException("minSize < 0");
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * The value of the {@code Content-Encoding} header.
+     */
+    public String encoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns true if {@code body} should be compressed. Bodies of unknown length always are.
+     */
+    boolean shouldCompress(RequestBody body) throws IOException {
+        long contentLength = body.contentLength();
+        return contentLength == -1 || contentLength >= minSize;
+    }
+
+    RequestBody compress(RequestBody body) {
+        return new CompressedRequestBody(body);
+    }
+
+    private final class CompressedRequestBody extends RequestBody {
+        private final RequestBody delegate;
+
+        CompressedRequestBody(RequestBody delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1; // We don't know the compressed length in advance.
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            BufferedSink compressedSink;
+            if ("gzip".equals(encoding)) {
+                compressedSink = Okio.buffer(new GzipSink(sink));
+            } else {
+                Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                compressedSink = Okio.buffer(new DeflaterSink(sink, deflater));
+            }
+            try {
+                delegate.writeTo(compressedSink);
+            } finally {
+                // Closing ends the deflater, whose native memory would otherwise leak until it is
+                // finalized.
+                compressedSink.close();
+            }
+        }
+    }
+}
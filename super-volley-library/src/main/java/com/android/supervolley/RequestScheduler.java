@@ -0,0 +1,234 @@
+package com.android.supervolley;
+
+import android.os.SystemClock;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Admission stage in front of the Volley {@link RequestQueue}.
+ * <p>
+ * Volley orders its network queue by priority and then by sequence, so under sustained high
+ * priority load a {@link Request.Priority#LOW LOW} request never leaves the queue, and a single
+ * chatty host can occupy every network dispatcher. This scheduler keeps requests until a dispatcher
+ * slot is available and then releases them in this order:
+ * <ul>
+ * <li>Hosts are served by weighted fair queuing: each host advances its own virtual time by
+ * {@code 1 / weight} per dispatched request and the host with the smallest virtual time goes
+ * next.</li>
+ * <li>Inside a host, requests are ordered by an aged deadline: {@code enqueueTime - rank *
+ * agingMillis}. A request waiting longer than {@code agingMillis} is therefore promoted above
+ * newer requests of the next priority, and no request can starve.</li>
+ * <li>No host has more than {@code maxRequestsPerHost} requests in flight.</li>
+ * </ul>
+ * All operations are O(log n) in the number of pending requests and hosts.
+ */
+final class RequestScheduler {
+
+    private static final Comparator<HostQueue> VIRTUAL_TIME_ORDER = new Comparator<HostQueue>() {
+        @Override
+        public int compare(HostQueue a, HostQueue b) {
+            int result = Double.compare(a.virtualTime, b.virtualTime);
+            if (result != 0) return result;
+            return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+        }
+    };
+
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final long agingMillis;
+    private final Map<String, Integer> hostWeights;
+
+    // All guarded by this.
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final TreeSet<HostQueue> ready = new TreeSet<>(VIRTUAL_TIME_ORDER);
+    private volatile int active; // Also read without the lock.
+    private volatile int pending; // Also read without the lock.
+    private long sequence;
+    private long nextHostId;
+    private double virtualClock;
+
+    RequestScheduler(int maxRequests, int maxRequestsPerHost, long agingMillis,
+                     Map<String, Integer> hostWeights) {
+        if (maxRequests <= 0) throw new IllegalArgumentException("maxRequests <= 0");
+        if (maxRequestsPerHost <= 0) throw new IllegalArgumentException("maxRequestsPerHost <= 0");
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.agingMillis = agingMillis;
+        this.hostWeights = new HashMap<>(hostWeights);
+    }
+
+    /**
+     * Releases {@link BaseRequest}s into {@code requestQueue} and frees their slot once Volley
+     * reports them finished.
+     */
+    void attach(RequestQueue requestQueue) {
+        requestQueue.addRequestFinishedListener(new RequestQueue.RequestFinishedListener<Object>() {
+            @Override
+            public void onRequestFinished(Request<Object> request) {
+                if (request instanceof BaseRequest) {
+                    String host = ((BaseRequest) request).getScheduledHost();
+                    if (host != null) {
+                        finished(host);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules {@code request} to be added to {@code requestQueue} once its host and the
+     * dispatcher pool have capacity.
+     */
+    void enqueue(final RequestQueue requestQueue, final BaseRequest request) {
+        final String host = request.getHost();
+        request.setScheduledHost(host);
+        submit(host, request.getPriority(), new Runnable() {
+            @Override
+            public void run() {
+                requestQueue.add(request);
+            }
+        });
+    }
+
+    /**
+     * Schedules {@code task} for {@code host}. The task is run on the calling thread or on the
+     * thread that completes an earlier task, and must eventually be followed by exactly one call
+     * to {@link #finished(String)}.
+     */
+    void submit(String host, Request.Priority priority, Runnable task) {
+        List<Runnable> runnable;
+        synchronized (this) {
+            HostQueue queue = hosts.get(host);
+            if (queue == null) {
+                queue = new HostQueue(host, weightOf(host), nextHostId++);
+                hosts.put(host, queue);
+            }
+            if (queue.pending.isEmpty() && !queue.ready) {
+                // An idle host re-enters at the current virtual time and can't claim past credit.
+                queue.virtualTime = Math.max(queue.virtualTime, virtualClock);
+            }
+            long deadline = SystemClock.elapsedRealtime() - rank(priority) * agingMillis;
+            queue.pending.add(new Pending(deadline, sequence++, task));
+            pending++;
+            markReady(queue);
+            runnable = promote();
+        }
+        run(runnable);
+    }
+
+    /**
+     * Releases the slot held by a request to {@code host}.
+     */
+    void finished(String host) {
+        List<Runnable> runnable;
+        synchronized (this) {
+            HostQueue queue = hosts.get(host);
+            if (queue == null || queue.active == 0) {
+                throw new AssertionError("Request wasn't in flight for host " + host);
+            }
+            queue.active--;
+            active--;
+            markReady(queue);
+            if (queue.active == 0 && queue.pending.isEmpty()) {
+                hosts.remove(host);
+            }
+            runnable = promote();
+        }
+        run(runnable);
+    }
+
+    int pendingCount() {
+        return pending;
+    }
+
+    int activeCount() {
+        return active;
+    }
+
+    private void markReady(HostQueue queue) {
+        if (!queue.ready && !queue.pending.isEmpty() && queue.active < maxRequestsPerHost) {
+            queue.ready = true;
+            ready.add(queue);
+        }
+    }
+
+    private List<Runnable> promote() {
+        List<Runnable> result = null;
+        while (active < maxRequests && !ready.isEmpty()) {
+            HostQueue queue = ready.pollFirst();
+            queue.ready = false;
+            Pending next = queue.pending.poll();
+            pending--;
+            queue.active++;
+            active++;
+            virtualClock = queue.virtualTime;
+            queue.virtualTime += 1d / queue.weight;
+            markReady(queue);
+
+            if (result == null) {
+                result = new ArrayList<>();
+            }
+            result.add(next.task);
+        }
+        return result;
+    }
+
+    private int weightOf(String host) {
+        Integer weight = hostWeights.get(host);
+        return weight != null ? weight : 1;
+    }
+
+    private static void run(List<Runnable> tasks) {
+        if (tasks == null) return;
+        for (int i = 0, size = tasks.size(); i < size; i++) {
+            tasks.get(i).run();
+        }
+    }
+
+    private static int rank(Request.Priority priority) {
+        return priority != null ? priority.ordinal() : Request.Priority.NORMAL.ordinal();
+    }
+
+    private static final class HostQueue {
+        final String host;
+        final int weight;
+        final long id;
+        final PriorityQueue<Pending> pending = new PriorityQueue<>();
+        double virtualTime;
+        int active;
+        boolean ready;
+
+        HostQueue(String host, int weight, long id) {
+            this.host = host;
+            this.weight = weight;
+            this.id = id;
+        }
+    }
+
+    private static final class Pending implements Comparable<Pending> {
+        final long deadline;
+        final long sequence;
+        final Runnable task;
+
+        Pending(long deadline, long sequence, Runnable task) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            if (deadline != other.deadline) return deadline < other.deadline ? -1 : 1;
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
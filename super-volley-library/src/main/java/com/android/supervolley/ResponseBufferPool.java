@@ -0,0 +1,126 @@
+package com.android.supervolley;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of the byte arrays that response bodies are read into.
+ * <p>
+ * Arrays come in power-of-two size classes from 4 KiB to 1 MiB, so one array serves every body
+ * up to its size. A body is read into a pooled array, converted from it, and the array is
+ * returned to the pool; larger bodies and bodies that are written to the cache get an array of
+ * their own. The pool keeps at most {@link #maxBytes()} bytes of idle arrays and drops the rest.
+ */
+public final class ResponseBufferPool {
+    private static final int MIN_SIZE_CLASS = 12; // 4 KiB.
+    private static final int MAX_SIZE_CLASS = 20; // 1 MiB.
+
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // All guarded by this.
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<byte[]>[] free = new ArrayDeque[MAX_SIZE_CLASS - MIN_SIZE_CLASS + 1];
+    private long retainedBytes;
+
+    ResponseBufferPool(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("maxBytes < 0");
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * The largest array the pool hands out. Bodies which are known to be larger are not pooled.
+     */
+    static int maxBufferSize() {
+        return 1 << MAX_SIZE_CLASS;
+    }
+
+    /**
+     * Returns an array of at least {@code minSize} bytes.
+     */
+    byte[] acquire(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        if (sizeClass > MAX_SIZE_CLASS) {
+            misses.incrementAndGet();
+            return new byte[minSize];
+        }
+        synchronized (this) {
+            byte[] buffer = free[sizeClass - MIN_SIZE_CLASS].poll();
+            if (buffer != null) {
+                retainedBytes -= buffer.length;
+                hits.incrementAndGet();
+                return buffer;
+            }
+        }
+        misses.incrementAndGet();
+        return new byte[1 << sizeClass];
+    }
+
+    /**
+     * Returns {@code buffer} to the pool. It must not be used afterwards.
+     */
+    void release(byte[] buffer) {
+        int length = buffer.length;
+        if (Integer.bitCount(length) != 1) return; // Not one of ours.
+        int sizeClass = Integer.numberOfTrailingZeros(length);
+        if (sizeClass < MIN_SIZE_CLASS || sizeClass > MAX_SIZE_CLASS) return;
+        synchronized (this) {
+            if (retainedBytes + length > maxBytes) return;
+            free[sizeClass - MIN_SIZE_CLASS].push(buffer);
+            retainedBytes += length;
+        }
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= 1 << MIN_SIZE_CLASS) return MIN_SIZE_CLASS;
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * The number of idle bytes the pool may keep.
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * The number of idle bytes the pool keeps now.
+     */
+    public synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * The number of requests for an array which were served from the pool.
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * The number of requests for an array which had to allocate one.
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * The fraction of requests for an array which were served from the pool, or 0 if there were
+     * none.
+     */
+    public double hitRate() {
+        long hits = hitCount();
+        long total = hits + missCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseBufferPool{hits=" + hitCount() + ", misses=" + missCount()
+                + ", retainedBytes=" + retainedBytes() + ", maxBytes=" + maxBytes + '}';
+    }
+}
@@ -2,28 +2,59 @@ package com.android.supervolley;
 
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+
+import okio.ByteString;
 
 /**
- * Pinning against the public key.
+ * Pinning against the public key of the root CA.
+ * <p>
+ * Pins are given as {@code "sha256/<base64>"}, the SHA-256 hash of the certificate's
+ * SubjectPublicKeyInfo, as used by HPKP and OkHttp's {@code CertificatePinner}. Any other string
+ * is compared with {@code PublicKey.toString()}, like earlier versions of this class did.
  */
 class RootCAPublicKeyValidator implements CertificateValidator {
 
-    private List<String> publicKeys;
+    private static final String SHA256_PREFIX = "sha256/";
+
+    private final Set<ByteString> spkiHashes = new HashSet<>();
+    private final Set<String> legacyKeys = new HashSet<>();
 
     RootCAPublicKeyValidator(String[] publicKeys) {
-        this.publicKeys = Arrays.asList(publicKeys);
+        for (String publicKey : publicKeys) {
+            if (publicKey.startsWith(SHA256_PREFIX)) {
+                ByteString hash = ByteString.decodeBase64(publicKey.substring(SHA256_PREFIX.length()));
+                if (hash == null || hash.size() != 32) {
+                    throw new IllegalArgumentException("Invalid SHA-256 pin: " + publicKey);
+                }
+                spkiHashes.add(hash);
+            } else {
+                legacyKeys.add(publicKey);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@code "sha256/<base64>"} pin of {@code certificate}'s public key.
+     */
+    static String pin(X509Certificate certificate) {
+        return SHA256_PREFIX + spkiHash(certificate).base64();
+    }
+
+    private static ByteString spkiHash(X509Certificate certificate) {
+        return ByteString.of(certificate.getPublicKey().getEncoded()).sha256();
     }
 
     @Override
     public void validateCertificates(X509Certificate[] serverCertificates) throws CertificateException {
-        X509Certificate root = serverCertificates[serverCertificates.length - 1];
-        if (publicKeys.isEmpty()) {
+        if (spkiHashes.isEmpty() && legacyKeys.isEmpty()) {
             // skip the public key check if the user did not set any
             return;
         }
-        boolean isValid = publicKeys.contains(root.getPublicKey().toString());
+        X509Certificate root = serverCertificates[serverCertificates.length - 1];
+        boolean isValid = !spkiHashes.isEmpty() && spkiHashes.contains(spkiHash(root))
+                || !legacyKeys.isEmpty() && legacyKeys.contains(root.getPublicKey().toString());
         if (!isValid) {
             throw new CertificateException("Public key doesn't match.");
         }
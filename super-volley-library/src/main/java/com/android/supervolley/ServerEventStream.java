@@ -0,0 +1,290 @@
+package com.android.supervolley;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.NoSuchElementException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Reads a {@code text/event-stream} or {@code application/x-ndjson} response body one event at a
+ * time. Only the line being parsed is held in memory; event data is handed to the element converter
+ * as soon as the event is complete.
+ */
+final class ServerEventStream<T> implements EventStream<T> {
+    /**
+     * Opens a new connection to the event source.
+     */
+    interface Connector {
+        okhttp3.Response connect(String lastEventId) throws IOException;
+    }
+
+    enum Format {
+        SERVER_SENT_EVENTS, NEWLINE_DELIMITED_JSON
+    }
+
+    private static final long DEFAULT_RETRY_MILLIS = 3000;
+    /** Consecutive connection failures after which the stream gives up. */
+    private static final int MAX_RECONNECT_ATTEMPTS = 5;
+
+    /**
+     * Returns the format of a body with {@code contentType}, or null if it isn't an event stream.
+     */
+    static Format formatOf(MediaType contentType) {
+        if (contentType == null) return null;
+        String type = contentType.type() + "/" + contentType.subtype();
+        if ("text/event-stream".equalsIgnoreCase(type)) {
+            return Format.SERVER_SENT_EVENTS;
+        }
+        if ("application/x-ndjson".equalsIgnoreCase(type)
+                || "application/stream+json".equalsIgnoreCase(type)
+                || "application/jsonl".equalsIgnoreCase(type)) {
+            return Format.NEWLINE_DELIMITED_JSON;
+        }
+        return null;
+    }
+
+    private final Format format;
+    private final Converter<ResponseBody, T> converter;
+    private final Connector connector;
+    private final Object lock = new Object();
+
+    private volatile boolean closed;
+    private volatile ResponseBody body;
+    private BufferedSource source;
+
+    private T next;
+    private boolean hasNext;
+    private int failures;
+    private long retryMillis = DEFAULT_RETRY_MILLIS;
+    private String lastEventId;
+    private String lastEventType;
+
+    // Event being parsed.
+    private final StringBuilder data = new StringBuilder();
+    private String eventId;
+    private String eventType;
+
+    ServerEventStream(Format format, ResponseBody body, Converter<ResponseBody, T> converter,
+                      Connector connector) {
+        this.format = format;
+        this.converter = converter;
+        this.connector = connector;
+        this.body = body;
+        this.source = body.source();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (!hasNext) {
+            if (closed) return false;
+
+            String payload;
+            try {
+                if (source == null && !reconnect()) {
+                    close();
+                    return false;
+                }
+                payload = format == Format.SERVER_SENT_EVENTS ? readEvent() : readLine();
+            } catch (IOException e) {
+                if (closed) return false;
+                release();
+                if (e instanceof FatalException || format != Format.SERVER_SENT_EVENTS
+                        || ++failures > MAX_RECONNECT_ATTEMPTS) {
+                    close();
+                    throw e;
+                }
+                continue;
+            }
+
+            if (payload == null) {
+                // End of body. A Server-Sent Events source is expected to be reconnected.
+                release();
+                if (format != Format.SERVER_SENT_EVENTS) {
+                    close();
+                    return false;
+                }
+                continue;
+            }
+
+            failures = 0;
+            next = converter.convert(ResponseBody.create(null, payload));
+            hasNext = true;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() throws IOException {
+        if (!hasNext()) throw new NoSuchElementException();
+        T result = next;
+        next = null;
+        hasNext = false;
+        return result;
+    }
+
+    @Override
+    public String lastEventId() {
+        return lastEventId;
+    }
+
+    @Override
+    public String lastEventType() {
+        return lastEventType;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        release();
+    }
+
+    private void release() {
+        ResponseBody current = body;
+        body = null;
+        source = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Waits for the retry delay and connects again. Returns false if the server asked to stop.
+     */
+    private boolean reconnect() throws IOException {
+        synchronized (lock) {
+            long deadline = System.currentTimeMillis() + retryMillis;
+            long remaining;
+            while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted");
+                }
+            }
+        }
+        if (closed) return false;
+
+        okhttp3.Response response = connector.connect(lastEventId);
+        ResponseBody responseBody = response.body();
+        if (response.code() == 204) {
+            responseBody.close();
+            return false;
+        }
+        if (!response.isSuccessful()) {
+            responseBody.close();
+            throw new FatalException("Event source answered HTTP " + response.code());
+        }
+        if (formatOf(responseBody.contentType()) != format) {
+            responseBody.close();
+            throw new FatalException("Event source answered " + responseBody.contentType());
+        }
+        body = responseBody;
+        source = responseBody.source();
+        if (closed) {
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next non-empty line, or null at the end of the body.
+     */
+    private String readLine() throws IOException {
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.trim().isEmpty()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses fields until a blank line completes an event with data, and returns its data. Returns
+     * null at the end of the body; an incomplete event is discarded.
+     */
+    private String readEvent() throws IOException {
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                String result = dispatch();
+                if (result != null) {
+                    return result;
+                }
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                continue; // Comment, typically a keep-alive.
+            }
+
+            int colon = line.indexOf(':');
+            String field = colon == -1 ? line : line.substring(0, colon);
+            String value = "";
+            if (colon != -1) {
+                int start = colon + 1;
+                if (start < line.length() && line.charAt(start) == ' ') {
+                    start++;
+                }
+                value = line.substring(start);
+            }
+
+            switch (field) {
+                case "data":
+                    data.append(value).append('\n');
+                    break;
+                case "event":
+                    eventType = value;
+                    break;
+                case "id":
+                    if (value.indexOf('\u0000') == -1) {
+                        eventId = value;
+                    }
+                    break;
+                case "retry":
+                    try {
+                        retryMillis = Long.parseLong(value);
+                    } catch (NumberFormatException ignored) {
+                    }
+                    break;
+                default:
+                    break; // Unknown fields are ignored.
+            }
+        }
+        data.setLength(0);
+        eventType = null;
+        return null;
+    }
+
+    private String dispatch() {
+        if (eventId != null) {
+            lastEventId = eventId;
+        }
+        String type = eventType;
+        eventType = null;
+        if (data.length() == 0) {
+            return null;
+        }
+        data.setLength(data.length() - 1); // Trailing newline.
+        String result = data.toString();
+        data.setLength(0);
+        lastEventType = type != null && !type.isEmpty() ? type : "message";
+        return result;
+    }
+
+    /**
+     * A failure after which the event source must not be reconnected.
+     */
+    private static final class FatalException extends IOException {
+        FatalException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.android.supervolley;
 
+import com.android.supervolley.annotation.Batchable;
 import com.android.supervolley.annotation.Body;
 import com.android.supervolley.annotation.CacheResponse;
 import com.android.supervolley.annotation.DELETE;
+import com.android.supervolley.annotation.Deflate;
+import com.android.supervolley.annotation.Destination;
+import com.android.supervolley.annotation.Durable;
 import com.android.supervolley.annotation.Field;
 import com.android.supervolley.annotation.FieldMap;
 import com.android.supervolley.annotation.FormUrlEncoded;
 import com.android.supervolley.annotation.GET;
+import com.android.supervolley.annotation.Gzip;
 import com.android.supervolley.annotation.HEAD;
 import com.android.supervolley.annotation.HTTP;
 import com.android.supervolley.annotation.Header;
 import com.android.supervolley.annotation.HeaderMap;
+import com.android.supervolley.annotation.LeanResponse;
 import com.android.supervolley.annotation.Multipart;
 import com.android.supervolley.annotation.OPTIONS;
 import com.android.supervolley.annotation.PATCH;
@@ -23,6 +29,7 @@ import com.android.supervolley.annotation.Priority;
 import com.android.supervolley.annotation.Query;
 import com.android.supervolley.annotation.QueryMap;
 import com.android.supervolley.annotation.Retries;
+import com.android.supervolley.annotation.Streaming;
 import com.android.supervolley.annotation.Tag;
 import com.android.supervolley.annotation.Url;
 import com.android.volley.DefaultRetryPolicy;
@@ -30,13 +37,13 @@ import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.RetryPolicy;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -62,9 +69,10 @@ final class ServiceMethod<R, T> {
 
     private final okhttp3.HttpUrl baseUrl;
     private final Converter<ResponseBody, R> responseConverter;
+    final Converter<ResponseBody, ?> elementConverter;
     private final String httpMethod;
     private final String relativeUrl;
-    private final Map<String, String> headers;
+    private final Headers headers;
     private final MediaType contentType;
     private final boolean hasBody;
     private final boolean isFormEncoded;
@@ -74,15 +82,27 @@ final class ServiceMethod<R, T> {
     private final RetryPolicy retryPolicy;
     private final Request.Priority priority;
     private final String tag;
+    private final int batchWindow;
+    private final int batchMaxSize;
+    private final RequestCompression compression;
+    final boolean isStreaming;
     final RequestQueue requestQueue;
+    final RequestBatcher batcher;
+    final DurableOutbox outbox;
+    final MultiplexedDispatcher dispatcher;
+    private final int leanMaxRawLength;
+    private final CallEventListener eventListener;
+    final CallRegistry registry;
+    final String name;
 
     ServiceMethod(Builder<R, T> builder) {
         this.callAdapter = builder.callAdapter;
         this.baseUrl = builder.volley.baseUrl();
         this.responseConverter = builder.responseConverter;
+        this.elementConverter = builder.elementConverter;
         this.httpMethod = builder.httpMethod;
         this.relativeUrl = builder.relativeUrl;
-        this.headers = builder.headers;
+        this.headers = builder.headers.build();
         this.contentType = builder.contentType;
         this.hasBody = builder.hasBody;
         this.isFormEncoded = builder.isFormEncoded;
@@ -92,7 +112,39 @@ final class ServiceMethod<R, T> {
         this.shouldCache = builder.shouldCache;
         this.priority = builder.priority;
         this.tag = builder.tag;
+        this.batchWindow = builder.batchWindow;
+        this.batchMaxSize = builder.batchMaxSize;
+        this.isStreaming = builder.isStreaming;
+        this.compression = builder.compression;
         this.requestQueue = builder.volley.requestQueue;
+        this.batcher = builder.batchable ? builder.volley.batcher : null;
+        this.outbox = builder.durable ? builder.volley.outbox : null;
+        this.dispatcher = builder.volley.dispatcher;
+        this.leanMaxRawLength = builder.leanMaxRawLength;
+        this.eventListener = builder.volley.eventListener;
+        this.registry = builder.volley.registry;
+        this.name = builder.method.getDeclaringClass().getSimpleName() + '.'
+                + builder.method.getName();
+    }
+
+    /**
+     * Hands {@code request} to the batcher if this method is
+     * {@link Batchable @Batchable}, and returns false otherwise.
+     */
+    boolean batch(BaseRequest request) {
+        if (batcher == null) {
+            return false;
+        }
+        batcher.enqueue(request, batchWindow, batchMaxSize);
+        return true;
+    }
+
+    /**
+     * Returns {@code response}, or a lean copy of it if this method's responses are
+     * {@link LeanResponse lean}.
+     */
+    HttpResponse retain(HttpResponse response) {
+        return leanMaxRawLength < 0 ? response : response.lean(leanMaxRawLength);
     }
 
     /**
@@ -105,7 +157,8 @@ final class ServiceMethod<R, T> {
                 .contentType(contentType).hasBody(hasBody)
                 .isFormEncoded(isFormEncoded).isMultipart(isMultipart)
                 .priority(priority).retryPolicy(retryPolicy)
-                .tag(tag).shouldCache(shouldCache);
+                .tag(tag).shouldCache(shouldCache)
+                .compression(compression);
 
         @SuppressWarnings("unchecked")
         ParameterHandler<Object>[] handlers = (ParameterHandler<Object>[]) parameterHandlers;
@@ -120,14 +173,32 @@ final class ServiceMethod<R, T> {
             handlers[p].apply(requestBuilder, args[p]);
         }
 
-        return requestBuilder.build();
+        BaseRequest request = (BaseRequest) requestBuilder.build();
+        if (eventListener != CallEventListener.NONE) {
+            request.setCallEvent(eventListener,
+                    new CallEvent(name, httpMethod, relativeUrl, request.getUrl()));
+        }
+        return request;
     }
 
     /**
-     * Builds a method return value from an HTTP response body.
+     * Builds a method return value from the HTTP response body of {@code request}.
      */
-    R toResponse(ResponseBody body) throws IOException {
-        return responseConverter.convert(body);
+    R toResponse(BaseRequest request, ResponseBody body) throws IOException {
+        if (responseConverter == null) {
+            // Only an EventStream has no converter of its own.
+            body.close();
+            throw new IOException("Expected an event stream but received " + body.contentType());
+        }
+        CallEvent callEvent = request.getCallEvent();
+        if (callEvent == null) {
+            return responseConverter.convert(body);
+        }
+        long bytes = body.contentLength();
+        long start = System.nanoTime();
+        R result = responseConverter.convert(body);
+        eventListener.conversionEnd(callEvent, bytes, System.nanoTime() - start);
+        return result;
     }
 
     /**
@@ -149,22 +220,31 @@ final class ServiceMethod<R, T> {
         boolean gotPath;
         boolean gotQuery;
         boolean gotUrl;
+        boolean gotDestination;
         String httpMethod;
         boolean hasBody;
         boolean isFormEncoded;
         boolean isMultipart;
         boolean shouldCache = false;
+        boolean batchable;
+        int batchWindow;
+        int batchMaxSize;
+        boolean isStreaming;
+        boolean durable;
+        int leanMaxRawLength = -1;
+        RequestCompression compression;
 
         RetryPolicy retryPolicy;
         Request.Priority priority;
         String tag;
 
         String relativeUrl;
-        Map<String, String> headers = new HashMap<>();
+        Headers.Builder headers = new Headers.Builder();
         MediaType contentType;
         Set<String> relativeUrlParamNames;
         ParameterHandler<?>[] parameterHandlers;
         Converter<ResponseBody, T> responseConverter;
+        Converter<ResponseBody, ?> elementConverter;
         CallAdapter<T, R> callAdapter;
 
         Builder(SuperVolley volley, Method method) {
@@ -183,7 +263,27 @@ final class ServiceMethod<R, T> {
                         + Utils.getRawType(responseType).getName()
                         + "' is not a valid response body type. Did you mean ResponseBody?");
             }
-            responseConverter = createResponseConverter();
+            Class<?> rawResponseType = Utils.getRawType(responseType);
+            if (rawResponseType == EventStream.class || rawResponseType == ElementStream.class) {
+                if (!(responseType instanceof ParameterizedType)) {
+                    throw methodError("%s must be parameterized as %s<Foo>.",
+                            rawResponseType.getSimpleName(), rawResponseType.getSimpleName());
+                }
+                // Both are read incrementally, and both accept event stream responses.
+                isStreaming = true;
+                elementConverter = createElementConverter(
+                        Utils.getParameterUpperBound(0, (ParameterizedType) responseType));
+            }
+            if (hasDestinationParameter()) {
+                if (responseType != File.class) {
+                    throw methodError("@Destination methods must have a File response type. Found: %s",
+                            responseType);
+                }
+                // The body is written to the destination instead of being converted.
+                isStreaming = true;
+            } else if (rawResponseType != EventStream.class) {
+                responseConverter = createResponseConverter();
+            }
 
             for (Annotation annotation : methodAnnotations) {
                 parseMethodAnnotation(annotation);
@@ -202,6 +302,12 @@ final class ServiceMethod<R, T> {
                     throw methodError("FormUrlEncoded can only be specified on HTTP methods with "
                             + "request body (e.g., @POST).");
                 }
+                if (compression != null) {
+                    throw methodError("Compression can only be specified on HTTP methods with "
+                            + "request body (e.g., @POST).");
+                }
+            } else if (compression == null) {
+                compression = volley.requestCompression;
             }
 
             int parameterCount = parameterAnnotationsArray.length;
@@ -234,6 +340,39 @@ final class ServiceMethod<R, T> {
                 throw methodError("Multipart method must contain at least one @Part.");
             }
 
+            if (batchable && volley.batcher == null) {
+                throw methodError("@Batchable requires a batch endpoint "
+                        + "(SuperVolley.Builder#batchEndpoint).");
+            }
+
+            if (elementConverter != null && !hasHeader("Accept")) {
+                headers.add("Accept", "text/event-stream, application/x-ndjson, application/json");
+            }
+
+            if (isStreaming && shouldCache) {
+                throw methodError("@Streaming responses can't be cached.");
+            }
+            if (isStreaming && batchable) {
+                throw methodError("@Streaming methods can't be @Batchable.");
+            }
+
+            if (leanMaxRawLength == -1 && volley.leanResponses) {
+                leanMaxRawLength = 0;
+            }
+
+            if (durable) {
+                if (volley.outbox == null) {
+                    throw methodError("@Durable requires a durable queue "
+                            + "(SuperVolley.Builder#durableQueue).");
+                }
+                if (isStreaming) {
+                    throw methodError("@Streaming methods can't be @Durable.");
+                }
+                if (batchable) {
+                    throw methodError("@Batchable methods can't be @Durable.");
+                }
+            }
+
             if (tag != null && tag.length() == 0) {
                 throw methodError("Tag can not be empty.");
             }
@@ -297,7 +436,7 @@ final class ServiceMethod<R, T> {
                 if (headersToParse.length == 0) {
                     throw methodError("@Headers annotation is empty.");
                 }
-                headers = parseHeaders(headersToParse);
+                parseHeaders(headersToParse);
             } else if (annotation instanceof Multipart) {
                 if (isFormEncoded) {
                     throw methodError("Only one encoding annotation is allowed.");
@@ -329,6 +468,47 @@ final class ServiceMethod<R, T> {
                 priority = ((Priority) annotation).value();
             } else if (annotation instanceof Tag) {
                 tag = ((Tag) annotation).value();
+            } else if (annotation instanceof Batchable) {
+                Batchable batch = (Batchable) annotation;
+                if (batch.window() < 0) {
+                    throw methodError("@Batchable window must not be negative.");
+                }
+                if (batch.maxSize() < 1) {
+                    throw methodError("@Batchable maxSize must be positive.");
+                }
+                batchable = true;
+                batchWindow = batch.window();
+                batchMaxSize = batch.maxSize();
+            } else if (annotation instanceof Streaming) {
+                isStreaming = true;
+            } else if (annotation instanceof Durable) {
+                durable = true;
+            } else if (annotation instanceof LeanResponse) {
+                leanMaxRawLength = ((LeanResponse) annotation).maxRawLength();
+                if (leanMaxRawLength < 0) {
+                    throw methodError("@LeanResponse maxRawLength must not be negative.");
+                }
+            } else if (annotation instanceof Gzip) {
+                if (compression != null) {
+                    throw methodError("Only one compression annotation is allowed.");
+                }
+                compression = RequestCompression.gzip(((Gzip) annotation).minSize());
+            } else if (annotation instanceof Deflate) {
+                if (compression != null) {
+                    throw methodError("Only one compression annotation is allowed.");
+                }
+                Deflate deflate = (Deflate) annotation;
+                if (deflate.dictionary().isEmpty()) {
+                    compression = RequestCompression.deflate(deflate.minSize());
+                } else {
+                    byte[] dictionary = volley.deflateDictionaries.get(deflate.dictionary());
+                    if (dictionary == null) {
+                        throw methodError("No deflate dictionary named \"%s\". "
+                                + "Register it with SuperVolley.Builder#deflateDictionary.",
+                                deflate.dictionary());
+                    }
+                    compression = RequestCompression.deflate(deflate.minSize(), dictionary);
+                }
             }
         }
 
@@ -360,8 +540,7 @@ final class ServiceMethod<R, T> {
             this.relativeUrlParamNames = parsePathParameters(value);
         }
 
-        private Map<String, String> parseHeaders(String[] headers) {
-            Map<String, String> map = new HashMap<>(headers.length);
+        private void parseHeaders(String[] headers) {
             for (String header : headers) {
                 int colon = header.indexOf(':');
                 if (colon == -1 || colon == 0 || colon == header.length() - 1) {
@@ -377,10 +556,23 @@ final class ServiceMethod<R, T> {
                     }
                     contentType = type;
                 } else {
-                    map.put(headerName, headerValue);
+                    try {
+                        this.headers.add(headerName, headerValue);
+                    } catch (IllegalArgumentException e) {
+                        throw methodError(e, "Invalid header: \"%s\"", header);
+                    }
                 }
             }
-            return map;
+        }
+
+        private boolean hasDestinationParameter() {
+            for (Annotation[] parameterAnnotations : parameterAnnotationsArray) {
+                if (parameterAnnotations != null
+                        && Utils.isAnnotationPresent(parameterAnnotations, Destination.class)) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         private ParameterHandler<?> parseParameter(
@@ -667,6 +859,9 @@ final class ServiceMethod<R, T> {
                             throw parameterError(p, "@Part parameters using the MultipartBody.Part must not "
                                     + "include a part name in the annotation.");
                         }
+                        if (iterableType == File.class) {
+                            return new ParameterHandler.FilePart(partName, part.encoding()).iterable();
+                        }
                         Converter<?, RequestBody> converter =
                                 volley.requestBodyConverter(iterableType, annotations, methodAnnotations);
                         return new ParameterHandler.Part<>(headers, converter).iterable();
@@ -676,12 +871,18 @@ final class ServiceMethod<R, T> {
                             throw parameterError(p, "@Part parameters using the MultipartBody.Part must not "
                                     + "include a part name in the annotation.");
                         }
+                        if (arrayComponentType == File.class) {
+                            return new ParameterHandler.FilePart(partName, part.encoding()).array();
+                        }
                         Converter<?, RequestBody> converter =
                                 volley.requestBodyConverter(arrayComponentType, annotations, methodAnnotations);
                         return new ParameterHandler.Part<>(headers, converter).array();
                     } else if (MultipartBody.Part.class.isAssignableFrom(rawParameterType)) {
                         throw parameterError(p, "@Part parameters using the MultipartBody.Part must not "
                                 + "include a part name in the annotation.");
+                    } else if (rawParameterType == File.class) {
+                        // Streamed from disk, with its name as the part's filename.
+                        return new ParameterHandler.FilePart(partName, part.encoding());
                     } else {
                         Converter<?, RequestBody> converter =
                                 volley.requestBodyConverter(type, annotations, methodAnnotations);
@@ -739,6 +940,17 @@ final class ServiceMethod<R, T> {
                 }
                 gotBody = true;
                 return new ParameterHandler.Body<>(converter);
+
+            } else if (annotation instanceof Destination) {
+                if (gotDestination) {
+                    throw parameterError(p, "Multiple @Destination method annotations found.");
+                }
+                if (type != File.class && type != DownloadTarget.class) {
+                    throw parameterError(p, "@Destination must be a File or DownloadTarget. Found: %s",
+                            type);
+                }
+                gotDestination = true;
+                return new ParameterHandler.Destination();
             }
 
             return null; // Not a SuperVolley annotation.
@@ -764,6 +976,19 @@ final class ServiceMethod<R, T> {
             }
         }
 
+        private boolean hasHeader(String name) {
+            return headers.get(name) != null;
+        }
+
+        private Converter<ResponseBody, ?> createElementConverter(Type elementType) {
+            Annotation[] annotations = method.getAnnotations();
+            try {
+                return volley.responseBodyConverter(elementType, annotations);
+            } catch (RuntimeException e) { // Wide exception range because factories are user code.
+                throw methodError(e, "Unable to create converter for %s", elementType);
+            }
+        }
+
         private RuntimeException methodError(String message, Object... args) {
             return methodError(null, message, args);
         }
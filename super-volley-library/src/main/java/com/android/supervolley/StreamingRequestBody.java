@@ -0,0 +1,118 @@
+package com.android.supervolley;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request bodies which are read from a file or stream while they are written to the network,
+ * instead of being held in memory. Every write reopens the source, so the bodies can be sent again
+ * when a request is retried.
+ * <pre><code>
+ * &#64;Multipart
+ * &#64;POST("upload")
+ * Call&lt;ResponseBody&gt; upload(@Part("video") RequestBody video);
+ *
+ * service.upload(StreamingRequestBody.create(MediaType.parse("video/mp4"), file, listener));
+ * </code></pre>
+ * A {@link File} can also be passed directly as a named
+ * {@link com.android.supervolley.annotation.Part @Part}.
+ */
+public abstract class StreamingRequestBody extends RequestBody {
+    private static final long CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Opens a new stream over the same content each time it is called.
+     */
+    public interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Returns a body that sends the contents of {@code file}.
+     */
+    public static RequestBody create(MediaType contentType, File file) {
+        return create(contentType, file, null);
+    }
+
+    /**
+     * Returns a body that sends the contents of {@code file} and reports its progress to
+     * {@code listener}.
+     */
+    public static RequestBody create(MediaType contentType, final File file,
+                                     ProgressListener listener) {
+        Utils.checkNotNull(file, "file == null");
+        return new StreamingRequestBody(contentType, listener) {
+            @Override
+            public long contentLength() {
+                return file.length();
+            }
+
+            @Override
+            Source open() throws IOException {
+                return Okio.source(new FileInputStream(file));
+            }
+        };
+    }
+
+    /**
+     * Returns a body that sends the content of the streams returned by {@code opener}.
+     * {@code contentLength} is the number of bytes in each stream, or -1 if it isn't known; the body
+     * is then sent with chunked transfer encoding.
+     */
+    public static RequestBody create(MediaType contentType, final long contentLength,
+                                     final Opener opener, ProgressListener listener) {
+        Utils.checkNotNull(opener, "opener == null");
+        return new StreamingRequestBody(contentType, listener) {
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+
+            @Override
+            Source open() throws IOException {
+                return Okio.source(opener.open());
+            }
+        };
+    }
+
+    private final MediaType contentType;
+    private final ProgressListener listener;
+
+    private StreamingRequestBody(MediaType contentType, ProgressListener listener) {
+        this.contentType = contentType;
+        this.listener = listener;
+    }
+
+    abstract Source open() throws IOException;
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long contentLength = contentLength();
+        Source source = open();
+        try {
+            long total = 0;
+            for (long read; (read = source.read(sink.buffer(), CHUNK_SIZE)) != -1; ) {
+                sink.emitCompleteSegments();
+                total += read;
+                if (listener != null) {
+                    listener.onProgress(total, contentLength);
+                }
+            }
+        } finally {
+            source.close();
+        }
+    }
+}
@@ -13,26 +13,34 @@ import com.android.volley.toolbox.DiskBasedCache;
 import com.android.volley.toolbox.NoCache;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 
-import static com.android.supervolley.ClientSSLSocketFactory.sslSocketFactory;
 import static java.util.Collections.unmodifiableList;
 
 /**
@@ -60,17 +68,48 @@ public final class SuperVolley {
     final Executor callbackExecutor;
     final boolean validateEagerly;
     final RequestQueue requestQueue;
+    final RequestScheduler scheduler;
+    final RequestBatcher batcher;
+    final okhttp3.Call.Factory callFactory;
+    final RequestCompression requestCompression;
+    final Map<String, byte[]> deflateDictionaries;
+    final DurableOutbox outbox;
+    final HandshakeStats handshakeStats;
+    final MultiplexedDispatcher dispatcher;
+    final boolean leanResponses;
+    final ResponseBufferPool bufferPool;
+    final CallEventListener eventListener;
+    final CallRegistry registry;
     private int timeOut;
 
-    SuperVolley(RequestQueue requestQueue, okhttp3.HttpUrl baseUrl,
+    SuperVolley(RequestQueue requestQueue, RequestScheduler scheduler, RequestBatcher batcher,
+                okhttp3.Call.Factory callFactory, okhttp3.HttpUrl baseUrl,
                 List<Converter.Factory> converterFactories, List<CallAdapter.Factory> adapterFactories,
-                Executor callbackExecutor, boolean validateEagerly, int timeOut) {
+                Executor callbackExecutor, boolean validateEagerly,
+                RequestCompression requestCompression, Map<String, byte[]> deflateDictionaries,
+                DurableOutbox outbox, HandshakeStats handshakeStats,
+                MultiplexedDispatcher dispatcher, boolean leanResponses,
+                ResponseBufferPool bufferPool, CallEventListener eventListener,
+                CallRegistry registry, int timeOut) {
         this.baseUrl = baseUrl;
         this.converterFactories = unmodifiableList(converterFactories); // Defensive copy at call site.
         this.adapterFactories = unmodifiableList(adapterFactories); // Defensive copy at call site.
         this.callbackExecutor = callbackExecutor;
         this.validateEagerly = validateEagerly;
         this.requestQueue = requestQueue;
+        this.scheduler = scheduler;
+        this.scheduler.attach(requestQueue);
+        this.batcher = batcher;
+        this.callFactory = callFactory;
+        this.requestCompression = requestCompression;
+        this.deflateDictionaries = deflateDictionaries;
+        this.outbox = outbox;
+        this.handshakeStats = handshakeStats;
+        this.dispatcher = dispatcher;
+        this.leanResponses = leanResponses;
+        this.bufferPool = bufferPool;
+        this.eventListener = eventListener;
+        this.registry = registry;
         this.requestQueue.start();
         this.timeOut = timeOut;
     }
@@ -143,12 +182,47 @@ public final class SuperVolley {
                         }
                         ServiceMethod<Object, Object> serviceMethod =
                                 (ServiceMethod<Object, Object>) loadServiceMethod(method);
-                        VolleyCall<Object> call = new VolleyCall<>(serviceMethod, args, requestQueue, timeOut);
+                        Call<Object> call = serviceMethod.isStreaming
+                                ? new OkHttpCall<Object>(serviceMethod, args, callFactory)
+                                : new VolleyCall<Object>(serviceMethod, args, requestQueue, scheduler, timeOut);
                         return serviceMethod.callAdapter.adapt(call);
                     }
                 });
     }
 
+    /**
+     * Opens a connection to the {@linkplain #baseUrl() base URL} in the background, so the first
+     * call doesn't pay for the DNS lookup and the TCP and TLS handshakes.
+     */
+    public void preconnect() {
+        preconnect(1);
+    }
+
+    /**
+     * Opens {@code connections} connections to the {@linkplain #baseUrl() base URL} in the
+     * background and leaves them idle in the connection pool. Use more than one when the first
+     * screen issues several requests at once over HTTP/1.1. OkHttp opens at most five concurrent
+     * connections per host by default.
+     */
+    public void preconnect(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections < 1");
+        }
+        Preconnector.preconnect(callFactory, baseUrl, connections);
+    }
+
+    /**
+     * Parses and validates every method of {@code services} now instead of on first use, like
+     * {@link Builder#validateEagerly(boolean) validateEagerly} does at {@link #create}. Call this
+     * from a background thread during startup.
+     */
+    public void preload(Class<?>... services) {
+        for (Class<?> service : services) {
+            Utils.validateServiceInterface(service);
+            eagerlyValidateMethods(service);
+        }
+    }
+
     private void eagerlyValidateMethods(Class<?> service) {
         Platform platform = Platform.get();
         for (Method method : service.getDeclaredMethods()) {
@@ -172,6 +246,134 @@ public final class SuperVolley {
         return result;
     }
 
+    /**
+     * Asynchronously runs {@code calls} with at most {@code parallelism} of them in flight and
+     * notifies {@code callback} of each result as it completes. All calls share the connection pool
+     * of this instance.
+     */
+    public <T> void enqueueAll(Collection<? extends Call<T>> calls, int parallelism,
+                               BulkPolicy policy, BulkCallback<T> callback) {
+        new FanOut<>(calls, parallelism, policy, callback).start();
+    }
+
+    /**
+     * Synchronously runs {@code calls} with at most {@code parallelism} of them in flight and returns
+     * their responses in the iteration order of {@code calls}.
+     * <p>
+     * With {@link BulkPolicy#COLLECT} a call which couldn't talk to the server is reported as an
+     * error response with code {@code -1}, like {@link Call#execute()} does. With
+     * {@link BulkPolicy#FAIL_FAST} the first failure cancels the outstanding calls and is thrown.
+     * <p>
+     * If no call completes for {@linkplain Builder#timeOut(int) the time out} of this instance,
+     * e.g. because a call was canceled elsewhere and will never complete, the outstanding calls
+     * are canceled and treated as failed with an {@link InterruptedIOException}.
+     * <p>
+     * Note: this waits for the {@linkplain #callbackExecutor() callback executor} so it must not be
+     * called from it, e.g. from the Android main thread.
+     *
+     * @throws IOException if a call failed and {@code policy} is {@link BulkPolicy#FAIL_FAST}.
+     */
+    public <T> List<Response<T>> executeAll(Collection<? extends Call<T>> calls, int parallelism,
+                                            BulkPolicy policy) throws IOException {
+        @SuppressWarnings("unchecked")
+        final Response<T>[] responses = new Response[calls.size()];
+        final Throwable[] failure = new Throwable[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger completed = new AtomicInteger();
+        FanOut<T> fanOut = new FanOut<>(calls, parallelism, policy, new BulkCallback<T>() {
+            @Override
+            public void onResponse(int index, Call<T> call, Response<T> response) {
+                responses[index] = response;
+                completed.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(int index, Call<T> call, Throwable t) {
+                responses[index] = Response.error(new HttpResponse.Builder()
+                        .message(t.getMessage()).success(false).code(-1).build());
+                completed.incrementAndGet();
+            }
+
+            @Override
+            public void onComplete(Throwable t) {
+                failure[0] = t;
+                done.countDown();
+            }
+        });
+        fanOut.start();
+
+        try {
+            // Like Call.execute(), give every call the time out; keep waiting while calls complete.
+            int progress = 0;
+            while (!done.await(timeOut, TimeUnit.SECONDS)) {
+                if (progress == completed.get()) {
+                    fanOut.timedOut(new InterruptedIOException("timeout"));
+                    done.await();
+                    break;
+                }
+                progress = completed.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for calls.", e);
+        }
+        Throwable t = failure[0];
+        if (t instanceof IOException) throw (IOException) t;
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t != null) throw new IOException(t);
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Sends the pending {@link com.android.supervolley.annotation.Durable @Durable} requests now
+     * instead of waiting for the next retry. Call this when connectivity is restored. Does nothing
+     * if no durable queue was configured.
+     */
+    public void flushOutbox() {
+        if (outbox != null) {
+            outbox.flush();
+        }
+    }
+
+    /**
+     * The number of {@link com.android.supervolley.annotation.Durable @Durable} requests that
+     * haven't been delivered yet.
+     */
+    public int pendingOutboxSize() {
+        return outbox != null ? outbox.size() : 0;
+    }
+
+    /**
+     * A snapshot of the calls which have been enqueued or executed and whose outcome hasn't been
+     * delivered yet, e.g. to find out which calls are stuck.
+     */
+    public List<InFlightCall> inFlightCalls() {
+        return registry.snapshot();
+    }
+
+    /**
+     * Queue, dispatcher and connection pool gauges, for tuning the thread pool and connection
+     * pool sizes.
+     */
+    public Telemetry telemetry() {
+        return registry.telemetry;
+    }
+
+    /**
+     * The TLS handshake counters of the default client.
+     */
+    public HandshakeStats handshakeStats() {
+        return handshakeStats;
+    }
+
+    /**
+     * The pool response bodies are read into, or null if it was disabled with
+     * {@link Builder#responseBufferPool(long) responseBufferPool(0)}.
+     */
+    public ResponseBufferPool responseBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * The API base URL.
      */
@@ -402,8 +604,26 @@ public final class SuperVolley {
         private boolean followSslRedirects = true;
         private String[] publicKeys;
         private int threadPoolSize = 5;
+        private int maxRequestsPerHost;
+        private int maxStreamsPerHost;
+        private boolean leanResponses;
+        private long responseBufferPoolBytes = 256 * 1024;
+        private CallEventListener eventListener = CallEventListener.NONE;
+        private long watchdogMillis;
+        private boolean cancelStalled;
+        private long priorityAgingMillis = 2000;
+        private final Map<String, Integer> hostWeights = new HashMap<>();
+        private String batchPath;
+        private BatchCodec batchCodec;
+        private RequestCompression requestCompression;
+        private final Map<String, byte[]> deflateDictionaries = new HashMap<>();
+        private File durableQueue;
+        private Dns dns;
+        private int sslSessionCacheSize = 64;
+        private int sslSessionTimeoutSeconds = 24 * 60 * 60;
         private final Set<Interceptor> interceptors = new HashSet<>();
         private LogLevel logLevel;
+        private double logSampleRate = 1;
         private int timeOut = 10;
 
         Builder(Platform platform) {
@@ -625,11 +845,60 @@ public final class SuperVolley {
             return this;
         }
 
+        /**
+         * Pins the public key of the root CA. Each pin is {@code "sha256/"} followed by the base64
+         * encoded SHA-256 hash of the key's SubjectPublicKeyInfo. Requires {@link #secure}.
+         */
         public Builder publicKeys(String[] publicKeys) {
             this.publicKeys = publicKeys;
             return this;
         }
 
+        /**
+         * The resolver of the default client, e.g. a {@link CachingDns}. Uses the system resolver
+         * by default.
+         */
+        public Builder dns(Dns dns) {
+            this.dns = Utils.checkNotNull(dns, "dns == null");
+            return this;
+        }
+
+        /**
+         * Sizes the TLS session cache of the default client. Reconnecting to a server whose
+         * session is still cached resumes it, which skips the key exchange and certificate
+         * validation. Defaults to 64 sessions kept for 24 hours; 0 means no limit.
+         */
+        public Builder sslSessionCache(int size, int timeoutSeconds) {
+            if (size < 0) {
+                throw new IllegalArgumentException("size < 0");
+            }
+            if (timeoutSeconds < 0) {
+                throw new IllegalArgumentException("timeoutSeconds < 0");
+            }
+            this.sslSessionCacheSize = size;
+            this.sslSessionTimeoutSeconds = timeoutSeconds;
+            return this;
+        }
+
+        /**
+         * Sends requests as asynchronous OkHttp calls instead of through the Volley network
+         * dispatchers, so that up to {@code maxStreamsPerHost} requests per host share one HTTP/2
+         * connection regardless of {@link #threadPoolSize}. Requests are released in the same
+         * priority and fairness order as with Volley. Methods with
+         * {@link com.android.supervolley.annotation.CacheResponse @CacheResponse} still use Volley
+         * and its cache.
+         * <p>
+         * The default client is configured to allow this many concurrent calls per host; a client
+         * set with {@link #client} keeps the limits of its own {@link okhttp3.Dispatcher}.
+         */
+        public Builder multiplexing(int maxStreamsPerHost) {
+            if (maxStreamsPerHost <= 0) {
+                throw new IllegalArgumentException("maxStreamsPerHost <= 0");
+            }
+            this.maxStreamsPerHost = maxStreamsPerHost;
+            return this;
+        }
+
         /**
          * @param threadPoolSize Number of network dispatcher threads to create
          */
@@ -638,6 +907,134 @@ public final class SuperVolley {
             return this;
         }
 
+        /**
+         * Limits the number of requests to a single host that may occupy network dispatcher threads
+         * at the same time. Defaults to {@link #threadPoolSize(int)}, i.e. no per-host limit.
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost <= 0) {
+                throw new IllegalArgumentException("maxRequestsPerHost <= 0");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Waiting requests are promoted by one {@link com.android.supervolley.annotation.Priority
+         * priority} level every {@code priorityAgingMillis} milliseconds, so low priority requests
+         * are never starved by a steady stream of higher priority ones. Defaults to 2 seconds.
+         */
+        public Builder priorityAgingMillis(long priorityAgingMillis) {
+            if (priorityAgingMillis < 0) {
+                throw new IllegalArgumentException("priorityAgingMillis < 0");
+            }
+            this.priorityAgingMillis = priorityAgingMillis;
+            return this;
+        }
+
+        /**
+         * Sets the share of network dispatcher threads that {@code host} receives relative to other
+         * hosts with pending requests. Every host has a weight of 1 by default.
+         */
+        public Builder hostWeight(String host, int weight) {
+            Utils.checkNotNull(host, "host == null");
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight <= 0");
+            }
+            this.hostWeights.put(host, weight);
+            return this;
+        }
+
+        /**
+         * Enables {@link com.android.supervolley.annotation.Batchable @Batchable} methods. Their
+         * calls are merged into {@code POST} requests to {@code path}, resolved against the base
+         * URL, and encoded by {@code codec}.
+         */
+        public Builder batchEndpoint(String path, BatchCodec codec) {
+            this.batchPath = Utils.checkNotNull(path, "path == null");
+            this.batchCodec = Utils.checkNotNull(codec, "codec == null");
+            return this;
+        }
+
+        /**
+         * Compresses the request bodies of all methods with {@code compression}, unless a method
+         * is annotated with {@link com.android.supervolley.annotation.Gzip @Gzip} or
+         * {@link com.android.supervolley.annotation.Deflate @Deflate}. Bodies are sent uncompressed
+         * by default.
+         */
+        public Builder requestCompression(RequestCompression compression) {
+            this.requestCompression = Utils.checkNotNull(compression, "compression == null");
+            return this;
+        }
+
+        /**
+         * Registers a preset dictionary for {@link com.android.supervolley.annotation.Deflate
+         * @Deflate} methods which name it.
+         */
+        public Builder deflateDictionary(String name, byte[] dictionary) {
+            Utils.checkNotNull(name, "name == null");
+            Utils.checkNotNull(dictionary, "dictionary == null");
+            this.deflateDictionaries.put(name, dictionary.clone());
+            return this;
+        }
+
+        /**
+         * Enables {@link com.android.supervolley.annotation.Durable @Durable} methods. Their
+         * requests are logged to {@code file} before they are sent and replayed from it until
+         * they are delivered, including after the process restarts.
+         */
+        public Builder durableQueue(File file) {
+            this.durableQueue = Utils.checkNotNull(file, "file == null");
+            return this;
+        }
+
+        /**
+         * Makes every method behave as if annotated with
+         * {@link com.android.supervolley.annotation.LeanResponse @LeanResponse}: responses drop
+         * their request and raw body once converted. Disabled by default.
+         */
+        public Builder leanResponses(boolean leanResponses) {
+            this.leanResponses = leanResponses;
+            return this;
+        }
+
+        /**
+         * Sets how many bytes of idle buffers the {@link ResponseBufferPool} keeps; 256 KiB by
+         * default. Response bodies that aren't cached are read into pooled buffers and the buffer
+         * is reused once the body has been converted. Use 0 to disable pooling.
+         */
+        public Builder responseBufferPool(long maxBytes) {
+            if (maxBytes < 0) {
+                throw new IllegalArgumentException("maxBytes < 0");
+            }
+            this.responseBufferPoolBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Reports the lifecycle of every call to {@code eventListener}: enqueue, cache lookup,
+         * network attempts, retries, conversion and delivery.
+         */
+        public Builder eventListener(CallEventListener eventListener) {
+            this.eventListener = Utils.checkNotNull(eventListener, "eventListener == null");
+            return this;
+        }
+
+        /**
+         * Reports calls which are still in flight after {@code maxAge}, to the log and to the
+         * {@link #eventListener(CallEventListener) event listener}. If {@code cancelStalled} is
+         * true they are also aborted: a call waiting on the network fails with a network
+         * error, and any other call is canceled and fails with a timeout. Disabled by default.
+         */
+        public Builder watchdog(long maxAge, TimeUnit unit, boolean cancelStalled) {
+            if (maxAge <= 0) {
+                throw new IllegalArgumentException("maxAge <= 0");
+            }
+            this.watchdogMillis = unit.toMillis(maxAge);
+            this.cancelStalled = cancelStalled;
+            return this;
+        }
+
         /**
          * Observes, modifies, and potentially short-circuits requests going out and the corresponding
          * responses coming back in. Typically interceptors add, remove, or transform headers on the request
@@ -656,6 +1053,19 @@ public final class SuperVolley {
             return this;
         }
 
+        /**
+         * The fraction of requests which are logged, between 0 and 1; all of them by default.
+         * Records are written on a background thread, so logging doesn't slow requests down,
+         * but a lower rate keeps busy apps from flooding the log.
+         */
+        public Builder logSampleRate(double sampleRate) {
+            if (sampleRate < 0 || sampleRate > 1) {
+                throw new IllegalArgumentException("sampleRate must be in [0, 1]");
+            }
+            this.logSampleRate = sampleRate;
+            return this;
+        }
+
         /**
          * @param timeOut is a timeOut for the Observable (synchronized) request
          *                <p>
@@ -686,14 +1096,18 @@ public final class SuperVolley {
             }
 
             okhttp3.Call.Factory callFactory = this.callFactory;
+            HandshakeStats handshakeStats = new HandshakeStats();
             if (callFactory == null) {
                 if (isSecured && publicKeys == null) {
                     this.publicKeys = new String[0];
                 } else if (!isSecured && publicKeys != null) {
                     throw new IllegalStateException("Please set the secure flag to true.");
                 }
-                callFactory = getDefaultOkHttpClient(isSecured, followRedirects,
-                        followSslRedirects, publicKeys, interceptors, logLevel);
+                ClientSSLSocketFactory sslSocketFactory = new ClientSSLSocketFactory(isSecured,
+                        publicKeys, sslSessionCacheSize, sslSessionTimeoutSeconds);
+                handshakeStats = sslSocketFactory.getHandshakeStats();
+                callFactory = getDefaultOkHttpClient(sslSocketFactory, followRedirects,
+                        followSslRedirects, interceptors, logLevel);
             }
 
             Executor executor = this.callbackExecutor;
@@ -701,9 +1115,41 @@ public final class SuperVolley {
                 executor = platform.defaultCallbackExecutor();
             }
 
-            final Network network = new BasicNetwork(new OkHttp3Stack(callFactory));
+            int perHost = maxRequestsPerHost > 0 ? maxRequestsPerHost : threadPoolSize;
+            RequestScheduler scheduler = new RequestScheduler(threadPoolSize, perHost,
+                    priorityAgingMillis, hostWeights);
+            Telemetry telemetry = new Telemetry(threadPoolSize, scheduler,
+                    callFactory instanceof OkHttpClient
+                            ? ((OkHttpClient) callFactory).connectionPool() : null);
+
+            ResponseBufferPool bufferPool = responseBufferPoolBytes > 0
+                    ? new ResponseBufferPool(responseBufferPoolBytes) : null;
+            final Network network = new BasicNetwork(new OkHttp3Stack(callFactory), bufferPool,
+                    telemetry);
             requestQueue = new RequestQueue(cache, network, threadPoolSize);
 
+            RequestBatcher batcher = null;
+            if (batchCodec != null) {
+                okhttp3.HttpUrl endpoint = baseUrl.resolve(batchPath);
+                if (endpoint == null) {
+                    throw new IllegalArgumentException(
+                            "Malformed URL. Base: " + baseUrl + ", Batch: " + batchPath);
+                }
+                batcher = new RequestBatcher(endpoint, batchCodec, requestQueue, scheduler);
+            }
+
+            MultiplexedDispatcher dispatcher = null;
+            if (maxStreamsPerHost > 0) {
+                RequestScheduler streamScheduler = new RequestScheduler(Integer.MAX_VALUE,
+                        maxStreamsPerHost, priorityAgingMillis, hostWeights);
+                dispatcher = new MultiplexedDispatcher(callFactory, streamScheduler);
+            }
+
+            DurableOutbox outbox = null;
+            if (durableQueue != null) {
+                outbox = new DurableOutbox(durableQueue, callFactory);
+            }
+
             // Make a defensive copy of the adapters and add the default Call adapter.
             List<CallAdapter.Factory> adapterFactories = new ArrayList<>(this.adapterFactories);
             adapterFactories.add(platform.defaultCallAdapterFactory(executor));
@@ -711,24 +1157,42 @@ public final class SuperVolley {
             // Make a defensive copy of the converters.
             List<Converter.Factory> converterFactories = new ArrayList<>(this.converterFactories);
 
-            return new SuperVolley(requestQueue, baseUrl, converterFactories,
-                    adapterFactories, executor, validateEagerly, timeOut);
+            CallRegistry registry = new CallRegistry(telemetry);
+            if (watchdogMillis > 0) {
+                registry.startWatchdog(watchdogMillis, cancelStalled);
+            }
+
+            return new SuperVolley(requestQueue, scheduler, batcher, callFactory, baseUrl,
+                    converterFactories, adapterFactories, executor, validateEagerly,
+                    requestCompression, new HashMap<>(deflateDictionaries), outbox, handshakeStats,
+                    dispatcher, leanResponses, bufferPool, eventListener, registry, timeOut);
         }
 
         /*
         * Returns OkHttpClient object with its sslSocketFactory and trustManager
         */
-        private OkHttpClient getDefaultOkHttpClient(boolean isSecured, boolean followRedirects,
-                                                    boolean followProtocolRedirects, String[] publicKeys,
+        private OkHttpClient getDefaultOkHttpClient(ClientSSLSocketFactory sslSocketFactory,
+                                                    boolean followRedirects,
+                                                    boolean followProtocolRedirects,
                                                     Collection<Interceptor> interceptors, LogLevel logLevel) {
-            sslSocketFactory().init(isSecured, publicKeys);
             OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                    .sslSocketFactory(sslSocketFactory().getFactory(),
-                            sslSocketFactory().get509TrustManager());
-            builder.addInterceptor(new HttpLoggingInterceptor().setLevel(logLevel));
+                    .sslSocketFactory(sslSocketFactory.getFactory(),
+                            sslSocketFactory.get509TrustManager());
+            builder.addInterceptor(new HttpLoggingInterceptor()
+                    .setLevel(logLevel)
+                    .setSampleRate(logSampleRate));
             for (Interceptor interceptor : interceptors) {
                 builder.addInterceptor(interceptor);
             }
+            if (dns != null) {
+                builder.dns(dns);
+            }
+            if (maxStreamsPerHost > 0) {
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequestsPerHost(maxStreamsPerHost);
+                dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), maxStreamsPerHost));
+                builder.dispatcher(dispatcher);
+            }
             builder.followRedirects(followRedirects);
             builder.followSslRedirects(followProtocolRedirects);
             return builder.build();
@@ -0,0 +1,213 @@
+package com.android.supervolley;
+
+import android.os.SystemClock;
+
+import com.android.volley.Request;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import okhttp3.ConnectionPool;
+
+/**
+ * Live gauges and counters of a {@link SuperVolley} instance, for sizing
+ * {@link SuperVolley.Builder#threadPoolSize(int) threadPoolSize} and the connection pool.
+ * <p>
+ * Except for the connection counts, which OkHttp reads under its pool lock, every value is read
+ * from an atomic counter maintained as requests move through the queues, so sampling takes no
+ * lock on the request path and can be done as often as needed. Values read together are not an
+ * atomic snapshot.
+ * <pre><code>
+ * Telemetry telemetry = volley.telemetry();
+ * Log.d("Telemetry", telemetry.busyNetworkDispatchers() + "/" + telemetry.networkDispatchers()
+ *         + " busy, p90 time in queue " + telemetry.queueTimePercentileMillis(0.9) + "ms");
+ * </code></pre>
+ */
+public final class Telemetry {
+    private static final Request.Priority[] PRIORITIES = Request.Priority.values();
+    private static final int BUCKETS = 18; // Up to 2^16 ms, about a minute, and an overflow.
+
+    private final int networkDispatchers;
+    private final RequestScheduler scheduler;
+    private final ConnectionPool connectionPool;
+
+    private final AtomicIntegerArray pendingByPriority = new AtomicIntegerArray(PRIORITIES.length);
+    private final AtomicInteger cacheBacklog = new AtomicInteger();
+    private final AtomicInteger networkBacklog = new AtomicInteger();
+    private final AtomicInteger busyDispatchers = new AtomicInteger();
+    private final AtomicLongArray queueTimes = new AtomicLongArray(BUCKETS);
+
+    Telemetry(int networkDispatchers, RequestScheduler scheduler, ConnectionPool connectionPool) {
+        this.networkDispatchers = networkDispatchers;
+        this.scheduler = scheduler;
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Requests of {@code priority} waiting in the Volley cache or network queue.
+     */
+    public int pendingRequests(Request.Priority priority) {
+        return pendingByPriority.get(priority.ordinal());
+    }
+
+    /**
+     * Requests of any priority waiting in the Volley cache or network queue.
+     */
+    public int pendingRequests() {
+        return cacheBacklog() + networkBacklog();
+    }
+
+    /**
+     * Requests waiting for the cache dispatcher.
+     */
+    public int cacheBacklog() {
+        return cacheBacklog.get();
+    }
+
+    /**
+     * Requests waiting for a network dispatcher.
+     */
+    public int networkBacklog() {
+        return networkBacklog.get();
+    }
+
+    /**
+     * Requests held back by the scheduler before they enter the Volley queue, because their host
+     * or the dispatcher pool is at capacity.
+     */
+    public int scheduledRequests() {
+        return scheduler.pendingCount();
+    }
+
+    /**
+     * The number of network dispatcher threads.
+     */
+    public int networkDispatchers() {
+        return networkDispatchers;
+    }
+
+    /**
+     * Network dispatcher threads currently performing an HTTP exchange.
+     */
+    public int busyNetworkDispatchers() {
+        return busyDispatchers.get();
+    }
+
+    public int idleNetworkDispatchers() {
+        return Math.max(0, networkDispatchers - busyDispatchers.get());
+    }
+
+    /**
+     * Idle connections in the OkHttp connection pool, or -1 if a custom
+     * {@link SuperVolley.Builder#callFactory call factory} is used.
+     */
+    public int idleConnections() {
+        return connectionPool != null ? connectionPool.idleConnectionCount() : -1;
+    }
+
+    /**
+     * All connections in the OkHttp connection pool, or -1 if a custom
+     * {@link SuperVolley.Builder#callFactory call factory} is used.
+     */
+    public int connections() {
+        return connectionPool != null ? connectionPool.connectionCount() : -1;
+    }
+
+    /**
+     * How many requests waited for a dispatcher for each time range, from when the call was
+     * enqueued until a cache or network dispatcher took it. Element {@code i} counts waits
+     * shorter than {@link #queueTimeBucketMillis(int) queueTimeBucketMillis(i)} and at least as
+     * long as the bound of the previous element; the last element counts all longer waits.
+     */
+    public long[] queueTimeHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = queueTimes.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * The exclusive upper bound of the {@code bucket} of {@link #queueTimeHistogram()}, or
+     * {@link Long#MAX_VALUE} for the last one.
+     */
+    public static long queueTimeBucketMillis(int bucket) {
+        if (bucket < 0 || bucket >= BUCKETS) {
+            throw new IllegalArgumentException("bucket must be in [0, " + BUCKETS + ")");
+        }
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * An upper bound of the {@code fraction} percentile of the time in queue, e.g. 0.9 for the
+     * 90th percentile, with the resolution of the histogram. Returns 0 if nothing was recorded.
+     */
+    public long queueTimePercentileMillis(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("fraction must be in [0, 1]");
+        }
+        long[] counts = queueTimeHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return queueTimeBucketMillis(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Updates the queue gauges from the Volley marker {@code tag} of {@code request}.
+     */
+    void onMarker(BaseRequest request, String tag) {
+        switch (tag) {
+            case "add-to-queue":
+                enter(request, request.shouldCache() ? cacheBacklog : networkBacklog);
+                break;
+            case "cache-queue-take":
+                leave(request, cacheBacklog);
+                break;
+            case "cache-miss":
+            case "cache-hit-expired":
+            case "cache-hit-refresh-needed":
+                enter(request, networkBacklog);
+                break;
+            case "network-queue-take":
+                leave(request, networkBacklog);
+                break;
+        }
+    }
+
+    void networkStarted() {
+        busyDispatchers.incrementAndGet();
+    }
+
+    void networkFinished() {
+        busyDispatchers.decrementAndGet();
+    }
+
+    private void enter(BaseRequest request, AtomicInteger backlog) {
+        backlog.incrementAndGet();
+        pendingByPriority.incrementAndGet(request.getPriority().ordinal());
+    }
+
+    private void leave(BaseRequest request, AtomicInteger backlog) {
+        backlog.decrementAndGet();
+        pendingByPriority.decrementAndGet(request.getPriority().ordinal());
+        if (request.markDequeued()) {
+            long millis = SystemClock.elapsedRealtime() - request.getEnqueuedAt();
+            int bucket = millis <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+            queueTimes.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        }
+    }
+}
@@ -354,6 +354,10 @@ final class Utils {
         return getParameterUpperBound(0, (ParameterizedType) returnType);
     }
 
+    static ParameterizedType newParameterizedType(Class<?> rawType, Type... typeArguments) {
+        return new ParameterizedTypeImpl(null, rawType, typeArguments);
+    }
+
     private static final class ParameterizedTypeImpl implements ParameterizedType {
         private final Type ownerType;
         private final Type rawType;
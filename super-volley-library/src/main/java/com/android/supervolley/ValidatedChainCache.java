@@ -0,0 +1,67 @@
+package com.android.supervolley;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Remembers certificate chains which passed the {@link CertificateValidator validators}, so that a
+ * reconnect to the same server skips the signature checks. A chain is identified by the SHA-256
+ * hash of its encoded certificates and is remembered until its first certificate expires, which
+ * keeps {@link CertificateValidityValidator} meaningful. The least recently used chain is evicted
+ * when the cache is full.
+ */
+final class ValidatedChainCache {
+    private final Map<ByteString, Long> expirations;
+
+    ValidatedChainCache(final int maxSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize < 1");
+        this.expirations = new LinkedHashMap<ByteString, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteString, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the fingerprint of {@code chain}, or null if it can't be encoded.
+     */
+    static ByteString fingerprint(X509Certificate[] chain) {
+        Buffer buffer = new Buffer();
+        try {
+            for (X509Certificate certificate : chain) {
+                byte[] encoded = certificate.getEncoded();
+                buffer.writeInt(encoded.length);
+                buffer.write(encoded);
+            }
+        } catch (CertificateEncodingException e) {
+            return null;
+        }
+        return buffer.sha256();
+    }
+
+    synchronized boolean isValidated(ByteString fingerprint, long nowMillis) {
+        Long expiration = expirations.get(fingerprint);
+        if (expiration == null) {
+            return false;
+        }
+        if (nowMillis >= expiration) {
+            expirations.remove(fingerprint);
+            return false;
+        }
+        return true;
+    }
+
+    synchronized void put(ByteString fingerprint, X509Certificate[] chain) {
+        long expiration = Long.MAX_VALUE;
+        for (X509Certificate certificate : chain) {
+            expiration = Math.min(expiration, certificate.getNotAfter().getTime());
+        }
+        expirations.put(fingerprint, expiration);
+    }
+}
@@ -28,6 +28,7 @@ final class VolleyCall<T> implements Call<T> {
     private final ServiceMethod<T, ?> serviceMethod;
     private final Object[] args;
     private final RequestQueue requestQueue;
+    private final RequestScheduler scheduler;
 
     private volatile boolean canceled;
 
@@ -37,9 +38,11 @@ final class VolleyCall<T> implements Call<T> {
     private boolean executed;
     private int timeOut;
 
-    VolleyCall(ServiceMethod<T, ?> serviceMethod, Object[] args, RequestQueue requestQueue, int timeOut) {
+    VolleyCall(ServiceMethod<T, ?> serviceMethod, Object[] args, RequestQueue requestQueue,
+               RequestScheduler scheduler, int timeOut) {
         this.serviceMethod = serviceMethod;
         this.requestQueue = requestQueue;
+        this.scheduler = scheduler;
         this.args = args;
         this.timeOut = timeOut;
     }
@@ -48,7 +51,7 @@ final class VolleyCall<T> implements Call<T> {
     // We are a final type & this saves clearing state.
     @Override
     public Call<T> clone() {
-        return new VolleyCall<>(serviceMethod, args, requestQueue, timeOut);
+        return new VolleyCall<>(serviceMethod, args, requestQueue, scheduler, timeOut);
     }
 
     @Override
@@ -142,7 +145,7 @@ final class VolleyCall<T> implements Call<T> {
                 int statusCode = finalCall.getStatusCode();
                 builder.code(statusCode).request(finalCall);
                 try {
-                    Response<T> response = parseResponse(builder, statusCode);
+                    Response<T> response = parseResponse(finalCall, builder, statusCode);
                     callSuccess(response);
                 } catch (Throwable e) {
                     callFailure(e);
@@ -165,6 +168,7 @@ final class VolleyCall<T> implements Call<T> {
                 } catch (Throwable t) {
                     t.printStackTrace();
                 }
+                finalCall.delivered(finalCall.getStatusCode(), false);
             }
 
             private void callSuccess(Response<T> response) {
@@ -173,10 +177,33 @@ final class VolleyCall<T> implements Call<T> {
                 } catch (Throwable t) {
                     t.printStackTrace();
                 }
+                finalCall.delivered(response.code(), response.isSuccessful());
             }
         });
 
-        requestQueue.add(call);
+        if (serviceMethod.outbox != null) {
+            try {
+                // Only send once the request is durable, or it could be lost in a crash.
+                serviceMethod.outbox.add(call, new DurableOutbox.CommitListener() {
+                    @Override
+                    public void onCommitted(IOException failure) {
+                        if (failure == null) {
+                            send(finalCall);
+                            return;
+                        }
+                        try {
+                            callback.onFailure(VolleyCall.this, failure);
+                        } catch (Throwable t) {
+                            t.printStackTrace();
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                callback.onFailure(this, e);
+            }
+            return;
+        }
+        send(call);
     }
 
     @Override
@@ -212,19 +239,44 @@ final class VolleyCall<T> implements Call<T> {
 
         RequestFuture<HttpResponse.Builder> future = RequestFuture.newFuture();
         call.setFutureRequest(future);
-        requestQueue.add(call);
+        if (serviceMethod.outbox != null) {
+            serviceMethod.outbox.addAndWait(call);
+        }
+        send(call);
+        Response<T> response;
         try {
             HttpResponse.Builder builder = future.get(timeOut, TimeUnit.SECONDS);
-            return parseResponse(builder, call.getStatusCode());
+            response = parseResponse(call, builder, call.getStatusCode());
         } catch (InterruptedException | TimeoutException | ExecutionException e) {
             // exception handling
             if (e.getCause() instanceof VolleyError) {
-                return parseError(((VolleyError) e.getCause()), call);
+                response = parseError(((VolleyError) e.getCause()), call);
+            } else {
+                response = Response.error(new HttpResponse.Builder()
+                        .message(e.getMessage()).request(call)
+                        .success(false).code(-1).build());
             }
-            return Response.error(new HttpResponse.Builder()
-                    .message(e.getMessage()).request(call)
-                    .success(false).code(-1).build());
+        } catch (IOException | RuntimeException e) {
+            call.delivered(call.getStatusCode(), false);
+            throw e;
         }
+        call.delivered(response.code(), response.isSuccessful());
+        return response;
+    }
+
+    private void send(BaseRequest call) {
+        serviceMethod.registry.register(call, serviceMethod.name);
+        CallEvent callEvent = call.getCallEvent();
+        if (callEvent != null) {
+            call.getEventListener().callEnqueued(callEvent);
+        }
+        if (serviceMethod.batch(call)) {
+            return;
+        }
+        if (serviceMethod.dispatcher != null && serviceMethod.dispatcher.dispatch(call)) {
+            return;
+        }
+        scheduler.enqueue(requestQueue, call);
     }
 
     private BaseRequest createRawCall() throws IOException {
@@ -235,29 +287,40 @@ final class VolleyCall<T> implements Call<T> {
         return (BaseRequest) request;
     }
 
-    private Response<T> parseResponse(HttpResponse.Builder builder, int code) throws IOException {
-        if (code < 200 || code >= 300) {
-            HttpResponse response = builder.success(false).build();
-            // Buffer the entire body to avoid future I/O.
-            ResponseBody bufferedBody = Utils.buffer(ResponseBody.create(null, response.toString()));
-            return Response.error(bufferedBody, response);
-        }
+    private Response<T> parseResponse(BaseRequest call, HttpResponse.Builder builder, int code)
+            throws IOException {
+        // Read the body from the bytes it was received in, which may be a pooled buffer.
+        ResponseBody rawBody = call.responseBody();
+        call.rawBody(builder);
+        HttpResponse retained = null;
+        try {
+            if (code < 200 || code >= 300) {
+                HttpResponse response = builder.success(false).build();
+                // Buffer the entire body to avoid future I/O.
+                ResponseBody bufferedBody = Utils.buffer(rawBody);
+                retained = serviceMethod.retain(response);
+                return Response.error(bufferedBody, retained);
+            }
 
-        HttpResponse response = builder.success(true).build();
-        if ((code == 204 || code == 205) && (response.toString() == null || response.toString().isEmpty())) {
-            return Response.success(null, response);
-        }
+            HttpResponse response = builder.success(true).build();
+            if ((code == 204 || code == 205) && rawBody.contentLength() == 0) {
+                retained = serviceMethod.retain(response);
+                return Response.success(null, retained);
+            }
 
-        ExceptionCatchingRequestBody catchingBody = new ExceptionCatchingRequestBody(
-                ResponseBody.create(null, response.toString()));
-        try {
-            T body = serviceMethod.toResponse(catchingBody);
-            return Response.success(body, response);
-        } catch (RuntimeException e) {
-            // If the underlying source threw an exception, propagate that rather than indicating it was
-            // a runtime exception.
-            catchingBody.throwIfCaught();
-            throw e;
+            ExceptionCatchingRequestBody catchingBody = new ExceptionCatchingRequestBody(rawBody);
+            try {
+                T body = serviceMethod.toResponse(call, catchingBody);
+                retained = serviceMethod.retain(response);
+                return Response.success(body, retained);
+            } catch (RuntimeException e) {
+                // If the underlying source threw an exception, propagate that rather than indicating it was
+                // a runtime exception.
+                catchingBody.throwIfCaught();
+                throw e;
+            }
+        } finally {
+            call.releaseResponseBody(retained);
         }
     }
 
@@ -272,13 +335,13 @@ final class VolleyCall<T> implements Call<T> {
             if (error.getCause() instanceof SSLHandshakeException) {
                 VolleyLog.e("SSLHandshakeException: Insecure connection");
             }
-            return Response.error(builder.build());
+            return Response.error(serviceMethod.retain(builder.build()));
         }
 
         NetworkResponse response = error.networkResponse;
         if (response == null) {
             VolleyLog.e("Local error.");
-            return Response.error(builder.build());
+            return Response.error(serviceMethod.retain(builder.build()));
         }
 
         String json = "";
@@ -286,7 +349,8 @@ final class VolleyCall<T> implements Call<T> {
             json = new String(response.data);
         }
         ResponseBody body = ResponseBody.create(MediaType.parse(response.headers.get("Content-Type")), json);
-        return Response.error(body, builder.raw(json).code(response.statusCode).build());
+        return Response.error(body,
+                serviceMethod.retain(builder.raw(json).code(response.statusCode).build()));
     }
 
     private static final class ExceptionCatchingRequestBody extends ResponseBody {
@@ -0,0 +1,36 @@
+package com.android.supervolley.annotation;
+
+import com.android.supervolley.BatchCodec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Allows calls to this method to be merged with other batchable calls issued within
+ * {@link #window()} milliseconds into a single request to the batch endpoint, which is encoded by
+ * the {@link BatchCodec} set with {@code SuperVolley.Builder#batchEndpoint}. Every caller still
+ * receives its own response.
+ * <pre><code>
+ * &#64;Batchable(window = 5, maxSize = 50)
+ * &#64;GET("users/{id}")
+ * Call&lt;User&gt; getUser(@Path("id") String id);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Batchable {
+    /**
+     * How long, in milliseconds, a call waits for other calls to join its batch.
+     */
+    int window() default 5;
+
+    /**
+     * The batch is sent as soon as it holds this many calls.
+     */
+    int maxSize() default 50;
+}
@@ -0,0 +1,35 @@
+package com.android.supervolley.annotation;
+
+import com.android.supervolley.RequestCompression;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Compresses the request body with {@code Content-Encoding: deflate} when it is at least
+ * {@link #minSize()} bytes long. Overrides the compression set on the builder.
+ * <pre><code>
+ * &#64;Deflate(dictionary = "events")
+ * &#64;POST("events")
+ * Call&lt;Void&gt; track(@Body Event event);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Deflate {
+    /**
+     * Bodies shorter than this many bytes are sent uncompressed.
+     */
+    int minSize() default RequestCompression.DEFAULT_MIN_SIZE;
+
+    /**
+     * The name of a preset dictionary registered with
+     * {@code SuperVolley.Builder#deflateDictionary}, or empty for none.
+     */
+    String dictionary() default "";
+}
@@ -0,0 +1,27 @@
+package com.android.supervolley.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Writes the response body to a file instead of converting it. The parameter is either a
+ * {@link java.io.File File} or a {@link com.android.supervolley.DownloadTarget DownloadTarget},
+ * and the method's response type must be {@code File}.
+ * <pre><code>
+ * &#64;GET("artifacts/{name}")
+ * Call&lt;File&gt; download(@Path("name") String name, @Destination File file);
+ * </code></pre>
+ * The body is streamed to disk as it is received, so the heap used doesn't depend on the size of
+ * the file. The file is only replaced once the whole body has been received and verified.
+ * <p>
+ * Destination parameters may not be {@code null}.
+ */
+@Documented
+@Target(PARAMETER)
+@Retention(RUNTIME)
+public @interface Destination {
+}
@@ -0,0 +1,28 @@
+package com.android.supervolley.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Persists the request before it is sent, and keeps sending it until the server answers.
+ * <p>
+ * The request is written to the durable queue configured with
+ * {@link com.android.supervolley.SuperVolley.Builder#durableQueue(java.io.File)
+ * durableQueue(File)}. If the call fails with a network error, a timeout, a 408, 429 or a 5xx
+ * response, or the process dies before it completes, the request is replayed in the background.
+ * Delivery is at least once, so the endpoint should be idempotent.
+ * <pre><code>
+ * &#64;POST("events")
+ * &#64;Durable
+ * Call&lt;Void&gt; track(@Body Event event);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Durable {
+}
@@ -0,0 +1,29 @@
+package com.android.supervolley.annotation;
+
+import com.android.supervolley.RequestCompression;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Compresses the request body with {@code Content-Encoding: gzip} when it is at least
+ * {@link #minSize()} bytes long. Overrides the compression set on the builder.
+ * <pre><code>
+ * &#64;Gzip
+ * &#64;POST("telemetry")
+ * Call&lt;Void&gt; report(@Body Report report);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Gzip {
+    /**
+     * Bodies shorter than this many bytes are sent uncompressed.
+     */
+    int minSize() default RequestCompression.DEFAULT_MIN_SIZE;
+}
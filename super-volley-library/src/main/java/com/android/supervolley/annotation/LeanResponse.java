@@ -0,0 +1,29 @@
+package com.android.supervolley.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Releases the raw response once it has been converted. The
+ * {@link com.android.supervolley.HttpResponse HttpResponse} of the call keeps its status,
+ * headers, URL and timing, but not the request and at most {@link #maxRawLength()} characters of
+ * the raw body. Use this for responses that are kept in memory, e.g. in a list or a cache.
+ * <pre><code>
+ * &#64;GET("feed")
+ * &#64;LeanResponse
+ * Call&lt;Feed&gt; feed();
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface LeanResponse {
+    /**
+     * The number of characters of the raw body to keep, e.g. for logging.
+     */
+    int maxRawLength() default 0;
+}
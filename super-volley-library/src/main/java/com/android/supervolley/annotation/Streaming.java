@@ -10,6 +10,11 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 /**
  * Treat the response body on methods returning {@link okhttp3.Response Response} as is,
  * i.e. without converting {@link okhttp3.Response#body() body()} to {@code byte[]}.
+ * <p>
+ * Streaming calls are sent directly through the OkHttp client rather than the Volley queue, so
+ * they are never cached or retried. Declare the response type as
+ * {@link com.android.supervolley.ElementStream ElementStream&lt;T&gt;} to decode a large JSON
+ * array one element at a time.
  */
 @Documented
 @Target(METHOD)